@@ -0,0 +1,38 @@
+-- 临时点赞数据同步台账：每个时间片一行，与该时间片每一批点赞数据在同一事务中推进
+-- scanCursor 为已写入部分之后的 HSCAN 游标，finished = 1 表示整个时间片已写入，重放时直接跳过
+-- countsApplied = 1 表示时间片的博客点赞数增量（thumb:count:{slice}）已写入，写入点赞记录时不再累计点赞数
+create table if not exists thumb_sync_ledger
+(
+    sliceId        varchar(32)                        not null comment '时间片 id' primary key,
+    scanCursor     varchar(32) default '0'            not null comment '已写入部分之后的 HSCAN 游标',
+    appliedEntries bigint      default 0              not null comment '已写入的临时点赞记录数',
+    checksum       bigint      default 0              not null comment '已写入记录的校验和（各记录 CRC32 之和）',
+    finished       tinyint     default 0              not null comment '是否已全部写入',
+    countsApplied  tinyint     default 0              not null comment '博客点赞数增量是否已写入',
+    createTime     datetime    default CURRENT_TIMESTAMP not null comment '创建时间',
+    updateTime     datetime    default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    index idx_finished_updateTime (finished, updateTime)
+) comment '临时点赞数据同步台账';
+
+-- 同步任务和点赞消费者通过 INSERT IGNORE 写入点赞记录，依赖该唯一索引去重
+-- 旧版本消费者在消息重复投递时可能写入重复的点赞记录，加索引前先去重，执行期间需停止消费者和同步任务
+-- 1.记录有重复点赞的博客
+create temporary table thumb_duplicate_blog as
+select distinct t1.blogId
+from thumb t1
+         join thumb t2 on t1.userId = t2.userId and t1.blogId = t2.blogId and t1.id > t2.id;
+
+-- 2.每个 (userId, blogId) 只保留 id 最小的一条
+delete t1
+from thumb t1
+         join thumb t2 on t1.userId = t2.userId and t1.blogId = t2.blogId and t1.id > t2.id;
+
+-- 3.重复记录也累计过点赞数，按去重后的记录重算这些博客的点赞数
+update blog b
+    join thumb_duplicate_blog d on b.id = d.blogId
+set b.thumbCount = (select count(*) from thumb t where t.blogId = b.id);
+
+drop temporary table thumb_duplicate_blog;
+
+alter table thumb
+    add unique key uk_userId_blogId (userId, blogId);
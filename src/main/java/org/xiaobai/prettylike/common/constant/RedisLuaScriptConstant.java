@@ -3,6 +3,8 @@ package org.xiaobai.prettylike.common.constant;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.data.redis.core.script.RedisScript;
 
+import java.util.List;
+
 /**
  * Redis 脚本常量
  */
@@ -10,18 +12,32 @@ public class RedisLuaScriptConstant {
     /**
      * 点赞 Lua 脚本
      * KEYS[1]       -- 临时计数键
-     * KEYS[2]       -- 用户点赞状态键
+     * KEYS[2]       -- 用户点赞分桶键
+     * KEYS[3]       -- 待同步时间片索引（zset）
+     * KEYS[4]       -- 时间片内各博客的点赞数增量
      * ARGV[1]       -- 用户 ID
      * ARGV[2]       -- 博客 ID
+     * ARGV[3]       -- 时间片 id
+     * ARGV[4]       -- 分桶过期时间（秒）
      * 返回:
+     * -2: 分桶不在 Redis 中
      * -1: 已点赞
      * 1: 操作成功
      */
     public static final RedisScript<Long> THUMB_SCRIPT = new DefaultRedisScript<>("""
             local tempThumbKey = KEYS[1]       -- 临时计数键（如 thumb:temp:{timeSlice}）
-            local userThumbKey = KEYS[2]       -- 用户点赞状态键（如 thumb:{userId}）
+            local userThumbKey = KEYS[2]       -- 用户点赞分桶键（如 thumb:{userId}:{bucket}）
+            local pendingSliceKey = KEYS[3]    -- 待同步时间片索引
+            local blogCountKey = KEYS[4]       -- 博客点赞数增量（如 thumb:count:{timeSlice}）
             local userId = ARGV[1]             -- 用户 ID
             local blogId = ARGV[2]             -- 博客 ID
+            local timeSlice = ARGV[3]          -- 时间片 id
+            local ttl = ARGV[4]                -- 分桶过期时间
+            
+            -- 0. 分桶已过期，需要先从数据库加载
+            if redis.call('EXISTS', userThumbKey) == 0 then
+                return -2
+            end
             
             -- 1. 检查是否已点赞（避免重复操作）
             if redis.call('HEXISTS', userThumbKey, blogId) == 1 then
@@ -35,9 +51,12 @@ public class RedisLuaScriptConstant {
             -- 3. 计算新值
             local newNumber = oldNumber + 1
             
-            -- 4. 原子性更新：写入临时计数 + 标记用户已点赞
+            -- 4. 原子性更新：写入临时计数 + 博客点赞数增量 + 登记待同步时间片 + 标记用户已点赞 + 分桶续期
             redis.call('HSET', tempThumbKey, hashKey, newNumber)
+            redis.call('HINCRBY', blogCountKey, blogId, 1)
+            redis.call('ZADD', pendingSliceKey, 'NX', timeSlice, timeSlice)
             redis.call('HSET', userThumbKey, blogId, 1)
+            redis.call('EXPIRE', userThumbKey, ttl)
             
             return 1  -- 返回 1 表示成功
             """, Long.class);
@@ -46,14 +65,24 @@ public class RedisLuaScriptConstant {
      * 取消点赞 Lua 脚本
      * 参数同上
      * 返回：
+     * -2: 分桶不在 Redis 中
      * -1: 未点赞
      * 1: 操作成功
      */
     public static final RedisScript<Long> UNTHUMB_SCRIPT = new DefaultRedisScript<>("""
             local tempThumbKey = KEYS[1]      -- 临时计数键（如 thumb:temp:{timeSlice}）
-            local userThumbKey = KEYS[2]      -- 用户点赞状态键（如 thumb:{userId}）
+            local userThumbKey = KEYS[2]      -- 用户点赞分桶键（如 thumb:{userId}:{bucket}）
+            local pendingSliceKey = KEYS[3]   -- 待同步时间片索引
+            local blogCountKey = KEYS[4]      -- 博客点赞数增量（如 thumb:count:{timeSlice}）
             local userId = ARGV[1]            -- 用户 ID
             local blogId = ARGV[2]            -- 博客 ID
+            local timeSlice = ARGV[3]         -- 时间片 id
+            local ttl = ARGV[4]               -- 分桶过期时间
+            
+            -- 0. 分桶已过期，需要先从数据库加载
+            if redis.call('EXISTS', userThumbKey) == 0 then
+                return -2
+            end
             
             -- 1. 检查用户是否已点赞（若未点赞，直接返回失败）
             if redis.call('HEXISTS', userThumbKey, blogId) ~= 1 then
@@ -67,18 +96,23 @@ public class RedisLuaScriptConstant {
             -- 3. 计算新值并更新
             local newNumber = oldNumber - 1
             
-            -- 4. 原子性操作：更新临时计数 + 删除用户点赞标记
+            -- 4. 原子性操作：更新临时计数 + 博客点赞数增量 + 登记待同步时间片 + 删除用户点赞标记 + 分桶续期
             redis.call('HSET', tempThumbKey, hashKey, newNumber)
+            redis.call('HINCRBY', blogCountKey, blogId, -1)
+            redis.call('ZADD', pendingSliceKey, 'NX', timeSlice, timeSlice)
             redis.call('HDEL', userThumbKey, blogId)
+            redis.call('EXPIRE', userThumbKey, ttl)
             
             return 1  -- 返回 1 表示成功
             """, Long.class);
 
     /**
      * 点赞 Lua 脚本
-     * KEYS[1]       -- 用户点赞状态键
+     * KEYS[1]       -- 用户点赞分桶键
      * ARGV[1]       -- 博客 ID
+     * ARGV[2]       -- 分桶过期时间（秒）
      * 返回:
+     * -2: 分桶不在 Redis 中
      * -1: 已点赞
      * 1: 操作成功
      */
@@ -86,6 +120,11 @@ public class RedisLuaScriptConstant {
                     local userThumbKey = KEYS[1]
                     local blogId = ARGV[1]
             
+                    -- 分桶已过期，需要先从数据库加载
+                    if redis.call("EXISTS", userThumbKey) == 0 then
+                        return -2
+                    end
+            
                     -- 判断是否已经点赞
                     if redis.call("HEXISTS", userThumbKey, blogId) == 1 then
                         return -1
@@ -93,21 +132,29 @@ public class RedisLuaScriptConstant {
             
                     -- 添加点赞记录
                     redis.call("HSET", userThumbKey, blogId, 1)
+                    redis.call("EXPIRE", userThumbKey, ARGV[2])
                     return 1
             """, Long.class);
 
     /**
      * 取消点赞 Lua 脚本
-     * KEYS[1]       -- 用户点赞状态键
+     * KEYS[1]       -- 用户点赞分桶键
      * ARGV[1]       -- 博客 ID
+     * ARGV[2]       -- 分桶过期时间（秒）
      * 返回:
-     * -1: 已点赞
+     * -2: 分桶不在 Redis 中
+     * -1: 未点赞
      * 1: 操作成功
      */
     public static final RedisScript<Long> UNTHUMB_SCRIPT_MQ = new DefaultRedisScript<>("""
             local userThumbKey = KEYS[1]
             local blogId = ARGV[1]
             
+            -- 分桶已过期，需要先从数据库加载
+            if redis.call("EXISTS", userThumbKey) == 0 then
+                return -2
+            end
+            
             -- 判断是否已点赞
             if redis.call("HEXISTS", userThumbKey, blogId) == 0 then
                 return -1
@@ -115,6 +162,229 @@ public class RedisLuaScriptConstant {
             
             -- 删除点赞记录
             redis.call("HDEL", userThumbKey, blogId)
+            redis.call("EXPIRE", userThumbKey, ARGV[2])
+            return 1
+            """, Long.class);
+
+    /**
+     * 批量点赞 Lua 脚本，同一用户的多篇博客一次执行
+     * KEYS[1]       -- 临时计数键
+     * KEYS[2]       -- 待同步时间片索引（zset）
+     * KEYS[3]       -- 时间片内各博客的点赞数增量
+     * KEYS[4..m]    -- 涉及的用户点赞分桶键
+     * ARGV[1]       -- 用户 ID
+     * ARGV[2]       -- 时间片 id
+     * ARGV[3..n-1]  -- 分桶键在 KEYS 中的下标、博客 ID 交替排列
+     * ARGV[n]       -- 分桶过期时间（秒）
+     * 返回: 与博客一一对应的结果列表，取值同 THUMB_SCRIPT
+     */
+    @SuppressWarnings("rawtypes")
+    public static final RedisScript<List> THUMB_BATCH_SCRIPT = new DefaultRedisScript<>("""
+            local tempThumbKey = KEYS[1]
+            local pendingSliceKey = KEYS[2]
+            local blogCountKey = KEYS[3]
+            local userId = ARGV[1]
+            local timeSlice = ARGV[2]
+            local ttl = ARGV[#ARGV]
+            local result = {}
+            
+            for i = 3, #ARGV - 1, 2 do
+                local userThumbKey = KEYS[tonumber(ARGV[i])]
+                local blogId = ARGV[i + 1]
+                if redis.call('EXISTS', userThumbKey) == 0 then
+                    result[#result + 1] = -2
+                elseif redis.call('HEXISTS', userThumbKey, blogId) == 1 then
+                    result[#result + 1] = -1
+                else
+                    redis.call('HINCRBY', tempThumbKey, userId .. ':' .. blogId, 1)
+                    redis.call('HINCRBY', blogCountKey, blogId, 1)
+                    redis.call('ZADD', pendingSliceKey, 'NX', timeSlice, timeSlice)
+                    redis.call('HSET', userThumbKey, blogId, 1)
+                    redis.call('EXPIRE', userThumbKey, ttl)
+                    result[#result + 1] = 1
+                end
+            end
+            return result
+            """, List.class);
+
+    /**
+     * 批量点赞 Lua 脚本（MQ），同一用户的多篇博客一次执行
+     * KEYS[1..m]    -- 涉及的用户点赞分桶键
+     * ARGV[1..n-1]  -- 分桶键在 KEYS 中的下标、博客 ID 交替排列
+     * ARGV[n]       -- 分桶过期时间（秒）
+     * 返回: 与博客一一对应的结果列表，取值同 THUMB_SCRIPT_MQ
+     */
+    @SuppressWarnings("rawtypes")
+    public static final RedisScript<List> THUMB_BATCH_SCRIPT_MQ = new DefaultRedisScript<>("""
+            local ttl = ARGV[#ARGV]
+            local result = {}
+            
+            for i = 1, #ARGV - 1, 2 do
+                local userThumbKey = KEYS[tonumber(ARGV[i])]
+                local blogId = ARGV[i + 1]
+                if redis.call("EXISTS", userThumbKey) == 0 then
+                    result[#result + 1] = -2
+                elseif redis.call("HEXISTS", userThumbKey, blogId) == 1 then
+                    result[#result + 1] = -1
+                else
+                    redis.call("HSET", userThumbKey, blogId, 1)
+                    redis.call("EXPIRE", userThumbKey, ttl)
+                    result[#result + 1] = 1
+                end
+            end
+            return result
+            """, List.class);
+
+    /**
+     * 写入点赞记录 Lua 脚本（不检查是否已点赞）
+     * KEYS[1]       -- 用户点赞分桶键
+     * ARGV[1]       -- 博客 ID
+     * ARGV[2]       -- 点赞记录值
+     * ARGV[3]       -- 分桶过期时间（秒）
+     * 返回:
+     * -2: 分桶不在 Redis 中
+     * 1: 操作成功
+     */
+    public static final RedisScript<Long> USER_THUMB_PUT_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call("EXISTS", KEYS[1]) == 0 then
+                return -2
+            end
+            redis.call("HSET", KEYS[1], ARGV[1], ARGV[2])
+            redis.call("EXPIRE", KEYS[1], ARGV[3])
+            return 1
+            """, Long.class);
+
+    /**
+     * 删除点赞记录 Lua 脚本（不检查是否已点赞）
+     * KEYS[1]       -- 用户点赞分桶键
+     * ARGV[1]       -- 博客 ID
+     * ARGV[2]       -- 分桶过期时间（秒）
+     * 返回:
+     * -2: 分桶不在 Redis 中
+     * 1: 操作成功
+     */
+    public static final RedisScript<Long> USER_THUMB_DELETE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call("EXISTS", KEYS[1]) == 0 then
+                return -2
+            end
+            redis.call("HDEL", KEYS[1], ARGV[1])
+            redis.call("EXPIRE", KEYS[1], ARGV[2])
             return 1
             """, Long.class);
+
+    /**
+     * 写入点赞记录并记录延迟写入日志 Lua 脚本（不检查是否已点赞）
+     * KEYS[1]       -- 用户点赞分桶键
+     * KEYS[2]       -- 延迟写入日志键
+     * ARGV[1]       -- 博客 ID
+     * ARGV[2]       -- 点赞记录 ID
+     * ARGV[3]       -- 用户 ID
+     * ARGV[4]       -- 写入时间（毫秒）
+     * ARGV[5]       -- 分桶过期时间（秒）
+     * 返回:
+     * -2: 分桶不在 Redis 中
+     * 1: 操作成功
+     */
+    public static final RedisScript<Long> USER_THUMB_PUT_JOURNAL_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call("EXISTS", KEYS[1]) == 0 then
+                return -2
+            end
+            redis.call("HSET", KEYS[1], ARGV[1], ARGV[2])
+            redis.call("EXPIRE", KEYS[1], ARGV[5])
+            redis.call("HSET", KEYS[2], ARGV[2], "+" .. ARGV[3] .. ":" .. ARGV[1] .. ":" .. ARGV[4])
+            return 1
+            """, Long.class);
+
+    /**
+     * 删除点赞记录并记录延迟写入日志 Lua 脚本（不检查是否已点赞）
+     * 参数与 USER_THUMB_PUT_JOURNAL_SCRIPT 相同，日志覆盖为待删除
+     */
+    public static final RedisScript<Long> USER_THUMB_DELETE_JOURNAL_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call("EXISTS", KEYS[1]) == 0 then
+                return -2
+            end
+            redis.call("HDEL", KEYS[1], ARGV[1])
+            redis.call("EXPIRE", KEYS[1], ARGV[5])
+            redis.call("HSET", KEYS[2], ARGV[2], "-" .. ARGV[3] .. ":" .. ARGV[1] .. ":" .. ARGV[4])
+            return 1
+            """, Long.class);
+
+    /**
+     * 移除已处理的延迟写入日志 Lua 脚本
+     * 日志仍是同一个操作时才移除，写入数据库期间又被取消点赞覆盖的日志保留
+     * KEYS[1]       -- 延迟写入日志键
+     * KEYS[2]       -- 死信键（可选），存在时把日志移入死信
+     * ARGV          -- 每条记录依次为 点赞记录 ID、操作（1 插入，-1 删除）、用户 ID、博客 ID
+     * 返回:
+     * 移除的日志条数
+     */
+    public static final RedisScript<Long> WRITE_BEHIND_JOURNAL_REMOVE_SCRIPT = new DefaultRedisScript<>("""
+            local removed = 0
+            for i = 1, #ARGV, 4 do
+                local prefix = (ARGV[i + 1] == "1" and "+" or "-") .. ARGV[i + 2] .. ":" .. ARGV[i + 3] .. ":"
+                local value = redis.call("HGET", KEYS[1], ARGV[i])
+                if value and string.sub(value, 1, #prefix) == prefix then
+                    if KEYS[2] then
+                        redis.call("HSET", KEYS[2], ARGV[i], value)
+                    end
+                    redis.call("HDEL", KEYS[1], ARGV[i])
+                    removed = removed + 1
+                end
+            end
+            return removed
+            """, Long.class);
+
+    /**
+     * 从数据库加载用户点赞分桶 Lua 脚本
+     * 分桶已存在时不覆盖，避免用旧数据覆盖加载期间写入的点赞
+     * KEYS[1]       -- 用户点赞分桶键
+     * ARGV[1]       -- 分桶过期时间（秒）
+     * ARGV[2..n]    -- 博客 ID、点赞记录值 交替排列
+     * 返回:
+     * 0: 分桶已存在
+     * 1: 加载成功
+     */
+    public static final RedisScript<Long> USER_THUMB_LOAD_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call("EXISTS", KEYS[1]) == 1 then
+                return 0
+            end
+            -- 标记字段保证空分桶也存在
+            redis.call("HSET", KEYS[1], "_", 1)
+            for i = 2, #ARGV, 2 do
+                redis.call("HSET", KEYS[1], ARGV[i], ARGV[i + 1])
+            end
+            redis.call("EXPIRE", KEYS[1], ARGV[1])
+            return 1
+            """, Long.class);
+
+    /**
+     * 释放锁 Lua 脚本
+     * KEYS[1]       -- 锁的 key
+     * ARGV[1]       -- 加锁时写入的 token
+     * 返回:
+     * 0: 锁已过期或被其他实例持有
+     * 1: 释放成功
+     */
+    public static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call("GET", KEYS[1]) == ARGV[1] then
+                return redis.call("DEL", KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    /**
+     * 锁续期
+     * KEYS[1]: 锁的 key
+     * ARGV[1]: 加锁时写入的 token
+     * ARGV[2]: 新的过期时间（毫秒）
+     * 返回:
+     * 0: 锁已过期或被其他实例持有
+     * 1: 续期成功
+     */
+    public static final RedisScript<Long> RENEW_LOCK_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call("GET", KEYS[1]) == ARGV[1] then
+                return redis.call("PEXPIRE", KEYS[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
 }
@@ -6,15 +6,71 @@ package org.xiaobai.prettylike.common.constant;
 public interface ThumbConstant {
 
     /**
-     * 用户点赞 hash key
+     * 用户点赞 hash key，按博客 id 分桶：thumb:{userId}:{blogId % USER_THUMB_BUCKETS}
      */
     String USER_THUMB_KEY_PREFIX = "thumb:";
 
     /**
-     * 临时 点赞记录 key
+     * 每个用户的点赞记录分桶数量，修改后已有的分桶会失效，需要从数据库重新加载
+     */
+    int USER_THUMB_BUCKETS = 64;
+
+    /**
+     * 分桶已从数据库完整加载的标记字段，分桶存在时一定包含该字段
+     */
+    String USER_THUMB_BUCKET_MARKER = "_";
+
+    /**
+     * 分桶过期时间（秒），每次写入时续期；长期未写入的分桶过期后由数据库重新加载
+     */
+    long USER_THUMB_BUCKET_TTL_SECONDS = 7 * 24 * 60 * 60;
+
+    /**
+     * 批量点赞单次最多包含的博客数
+     */
+    int MAX_BATCH_THUMB_SIZE = 500;
+
+    /**
+     * 临时 点赞记录 key：thumb:temp:{时间片 id}，时间片 id 见 TimeSliceClock
      */
     String TEMP_THUMB_KEY_PREFIX = "thumb:temp:%s";
 
+    /**
+     * 时间片内各博客的点赞数增量 key：thumb:count:{时间片 id}，field 为博客 id
+     */
+    String TEMP_BLOG_COUNT_KEY_PREFIX = "thumb:count:%s";
+
+    /**
+     * 待同步时间片索引（zset），member 与 score 都是时间片 id，由点赞脚本第一次写入时间片时登记，时间片同步完成后移除
+     */
+    String THUMB_SYNC_PENDING_KEY = "thumb:sync:pending";
+
+    /**
+     * 已同步到数据库的最新时间片，该时间片及之前的时间片都已同步
+     */
+    String THUMB_SYNC_WATERMARK_KEY = "thumb:sync:watermark";
+
+    /**
+     * 博客点赞数增量已同步到数据库的最新时间片
+     */
+    String THUMB_SYNC_COUNT_WATERMARK_KEY = "thumb:sync:count-watermark";
+
+    /**
+     * 延迟写入日志（hash），field 为点赞记录 id，value 为 {+|-}{userId}:{blogId}:{写入时间毫秒}，
+     * + 为待插入，- 为待删除；与点赞分桶在同一个 Lua 脚本中写入，写入数据库后删除
+     */
+    String THUMB_WRITE_BEHIND_JOURNAL_KEY = "thumb:write-behind:journal";
+
+    /**
+     * 多次写入数据库失败而放弃的延迟写入日志（hash），格式与 THUMB_WRITE_BEHIND_JOURNAL_KEY 相同，需人工处理
+     */
+    String THUMB_WRITE_BEHIND_DEAD_LETTER_KEY = "thumb:write-behind:dead-letter";
+
+    /**
+     * 用户点赞操作锁 key（实际 Redis key 会再加上 lock: 前缀）
+     */
+    String USER_THUMB_LOCK_KEY_PREFIX = "thumb-user:";
+
     /**
      * 未点赞常量
      */
@@ -12,6 +12,8 @@ public enum LuaStatusEnum {
     SUCCESS(1L),
     // 失败
     FAIL(-1L),
+    // 用户点赞分桶不在 Redis 中，需要从数据库加载后重试
+    COLD(-2L),
     ;
 
     private final long value;
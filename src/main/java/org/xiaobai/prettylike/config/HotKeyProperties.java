@@ -0,0 +1,94 @@
+package org.xiaobai.prettylike.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 热key 检测配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "cache.hot-key")
+public class HotKeyProperties {
+
+    /**
+     * 监控 Top K 个 key
+     */
+    private int k = 100;
+
+    /**
+     * 哈希表宽度（分片时为所有分片的总宽度）
+     */
+    private int width = 100000;
+
+    /**
+     * 哈希表深度
+     */
+    private int depth = 5;
+
+    /**
+     * 衰减系数
+     */
+    private double decay = 0.92;
+
+    /**
+     * 最小出现次数，低于该次数的 key 不进入 TopK
+     */
+    private int minCount = 10;
+
+    /**
+     * 分片数量
+     * 1：不分片，使用单个检测器
+     * <= 0：按 CPU 核数分片
+     */
+    private int shards = 1;
+
+    /**
+     * 衰减周期（秒），滑动窗口模式下为每个时间片的长度
+     */
+    private int fadingIntervalSeconds = 20;
+
+    /**
+     * 滑动窗口模式
+     */
+    private Window window = new Window();
+
+    /**
+     * 集群热key 聚合
+     */
+    private Cluster cluster = new Cluster();
+
+    @Data
+    public static class Cluster {
+
+        /**
+         * 是否开启集群热key 聚合
+         */
+        private boolean enabled = false;
+
+        /**
+         * 全局 TopK 的大小
+         */
+        private int k = 100;
+    }
+
+    @Data
+    public static class Window {
+
+        /**
+         * 是否使用滑动窗口检测器代替周期减半
+         */
+        private boolean enabled = false;
+
+        /**
+         * 时间片数量，时间片数量 * 衰减周期 为能查询的最长窗口
+         */
+        private int slots = 45;
+
+        /**
+         * 长窗口包含的时间片数量，离开长窗口 TopK 的 key 从本地缓存剔除
+         */
+        private int demoteSlots = 15;
+    }
+}
@@ -0,0 +1,68 @@
+package org.xiaobai.prettylike.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 本地缓存配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "cache.local")
+public class LocalCacheProperties {
+
+    /**
+     * 最大容量（通用本地缓存和点赞记录缓存各自的容量）
+     */
+    private int maximumSize = 1000;
+
+    /**
+     * 写入后的过期时间
+     * 其他实例的修改会通过失效广播剔除本地缓存，广播不保证送达，丢失失效消息的旧值最多保留这么久
+     */
+    private Duration expireAfterWrite = Duration.ofMinutes(5);
+
+    /**
+     * 启动时就开始跟踪的复合 key（hashKey:key），被跟踪的 key 每次读取都会打印日志
+     */
+    private List<String> traceKeys = new ArrayList<>();
+
+    /**
+     * 自适应容量
+     */
+    private Adaptive adaptive = new Adaptive();
+
+    @Data
+    public static class Adaptive {
+
+        /**
+         * 是否根据命中率和堆内存余量自动调整容量
+         */
+        private boolean enabled = false;
+
+        /**
+         * 容量下限
+         */
+        private int minSize = 500;
+
+        /**
+         * 容量上限
+         */
+        private int maxSize = 20000;
+
+        /**
+         * 目标命中率，低于该值且发生了淘汰时扩容
+         */
+        private double targetHitRatio = 0.9;
+
+        /**
+         * 堆内存最小空闲比例，低于该值时缩容
+         */
+        private double minHeapFreeRatio = 0.2;
+    }
+}
@@ -0,0 +1,38 @@
+package org.xiaobai.prettylike.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 锁配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "lock")
+public class LockProperties {
+
+    /**
+     * local：单机分段锁
+     * redis：Redis 分布式锁，适用于多实例部署
+     */
+    private String type = "local";
+
+    /**
+     * 分段锁数量，会向上取整为 2 的幂
+     */
+    private int stripes = 1024;
+
+    /**
+     * 获取锁的最长等待时间
+     */
+    private Duration waitTimeout = Duration.ofSeconds(3);
+
+    /**
+     * Redis 锁的过期时间，持有期间每隔 1/3 租期续期一次；
+     * 持有者所在实例宕机后，锁最多在一个租期后自动释放
+     */
+    private Duration leaseTime = Duration.ofSeconds(30);
+}
@@ -0,0 +1,41 @@
+package org.xiaobai.prettylike.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 用户点赞过滤器配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "thumb.filter")
+public class ThumbFilterProperties {
+
+    /**
+     * 是否开启：hasThumb() 先查询本地布隆过滤器，一定未点赞时不再访问缓存和 Redis
+     */
+    private boolean enabled = false;
+
+    /**
+     * 误判率
+     */
+    private double fpp = 0.01;
+
+    /**
+     * 每个用户过滤器的最小容量，实际容量为 max(该值, 已点赞数 * 2)
+     */
+    private int minExpectedInsertions = 64;
+
+    /**
+     * 所有过滤器位数组的总大小上限（bit），超过后淘汰最久未使用的用户
+     */
+    private long maximumBits = 64L * 1024 * 1024;
+
+    /**
+     * 过滤器重建周期，取消点赞留下的位在重建后才会清除
+     */
+    private Duration expireAfterWrite = Duration.ofMinutes(30);
+}
@@ -0,0 +1,76 @@
+package org.xiaobai.prettylike.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 临时点赞数据同步到数据库的配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "thumb.sync")
+public class ThumbSyncProperties {
+
+    /**
+     * 时间片宽度，必须为整数秒
+     */
+    private Duration sliceWidth = Duration.ofSeconds(10);
+
+    /**
+     * 时间片结束后等待多久再同步，避免与跨越时间片边界的写入并发
+     */
+    private Duration sliceGrace = Duration.ofSeconds(1);
+
+    /**
+     * 同步任务的执行间隔（毫秒），每次处理所有已结束且未同步的时间片
+     */
+    private long intervalMillis = 2000;
+
+    /**
+     * 博客点赞数同步任务的执行间隔（毫秒）
+     */
+    private long countIntervalMillis = 1000;
+
+    /**
+     * 积压多个时间片时并行同步的时间片数量
+     */
+    private int parallelism = 4;
+
+    /**
+     * 每次执行最多同步的时间片数量，停机较久时分多次追赶
+     */
+    private int maxSlicesPerRun = 360;
+
+    /**
+     * 每批写入数据库的点赞记录数，每批一个事务
+     */
+    private int chunkSize = 1000;
+
+    /**
+     * 每次 HSCAN 的 COUNT 参数
+     */
+    private int scanCount = 500;
+
+    /**
+     * 已读取、等待写入数据库的批次上限，达到上限时暂停读取 Redis
+     */
+    private int queueCapacity = 4;
+
+    /**
+     * 补偿任务的执行间隔（毫秒）
+     */
+    private long recoveryIntervalMillis = 60000;
+
+    /**
+     * 结束超过该时长仍在待同步索引中的时间片由补偿任务同步
+     */
+    private Duration recoveryDelay = Duration.ofMinutes(5);
+
+    /**
+     * 已完成时间片的同步台账保留时间，超过后由补偿任务删除
+     */
+    private Duration ledgerRetention = Duration.ofDays(7);
+}
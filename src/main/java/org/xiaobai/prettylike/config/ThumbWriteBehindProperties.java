@@ -0,0 +1,39 @@
+package org.xiaobai.prettylike.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本地缓存点赞服务的延迟写入配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "thumb.write-behind")
+public class ThumbWriteBehindProperties {
+
+    /**
+     * 是否开启延迟写入：点赞只写 Redis 和本地缓存，数据库批量异步写入
+     */
+    private boolean enabled = false;
+
+    /**
+     * 批量写入间隔（毫秒）
+     */
+    private long flushIntervalMillis = 1000;
+
+    /**
+     * 每批最多写入的点赞记录数，待写入记录达到该数量时立即触发一次写入
+     */
+    private int flushSize = 500;
+
+    /**
+     * 同一批连续写入失败的最大次数，达到后拆分该批次；只剩一条记录时放弃写入，日志移入死信
+     */
+    private int maxAttempts = 10;
+
+    /**
+     * 延迟写入日志超过该时间（毫秒）仍未移除时，由任一实例重放写入数据库，同时也是检查间隔
+     */
+    private long journalReplayAfterMillis = 60000;
+}
@@ -12,9 +12,12 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.xiaobai.prettylike.common.result.BaseResponse;
 import org.xiaobai.prettylike.common.result.ResultUtils;
+import org.xiaobai.prettylike.model.dto.thumb.BatchThumbRequest;
 import org.xiaobai.prettylike.model.dto.thumb.DoThumbRequest;
 import org.xiaobai.prettylike.service.ThumbService;
 
+import java.util.Map;
+
 /**
  * 点赞Controller
  */
@@ -56,6 +59,21 @@ public class ThumbController {
         return ResultUtils.success(success);
     }
 
+    @PostMapping("/batch")
+    @Operation(description = "批量点赞")
+    public BaseResponse<Map<Long, Boolean>> doThumbBatch(@RequestBody BatchThumbRequest batchThumbRequest,
+                                                         HttpServletRequest request) {
+        Map<Long, Boolean> result;
+        try {
+            result = thumbService.doThumbBatch(batchThumbRequest, request);
+        } catch (Exception e) {
+            failureCounter.increment();
+            throw e;
+        }
+        result.values().forEach(success -> (success ? successCounter : failureCounter).increment());
+        return ResultUtils.success(result);
+    }
+
     @PostMapping("/undo")
     @Operation(description = "取消点赞")
     public BaseResponse<Boolean> undoThumb(@RequestBody DoThumbRequest doThumbRequest, HttpServletRequest request) {
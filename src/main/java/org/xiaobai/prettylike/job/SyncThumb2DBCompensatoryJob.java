@@ -1,58 +1,104 @@
 package org.xiaobai.prettylike.job;
 
 import cn.hutool.core.collection.CollUtil;
-import cn.hutool.core.util.ObjUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.xiaobai.prettylike.common.constant.ThumbConstant;
-import org.xiaobai.prettylike.utils.RedisKeyUtil;
+import org.xiaobai.prettylike.config.ThumbSyncProperties;
+import org.xiaobai.prettylike.mapper.ThumbSyncLedgerMapper;
+import org.xiaobai.prettylike.model.entity.ThumbSyncLedger;
 
-import java.util.HashSet;
+import java.util.Date;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 定时将 Redis 中的临时点赞数据同步到数据库的补偿措施
  * 当数据在 Redis 中，由于不可控因素导致没有成功同步到数据库时，通过该任务补偿
+ * 待同步的时间片由点赞脚本登记在索引（zset，score 为时间片 id）中，通过 ZRANGEBYSCORE 找出结束超过 recovery-delay 的时间片，
+ * 不再扫描 Redis 的 key
  */
 @Slf4j
 //@Component
 public class SyncThumb2DBCompensatoryJob {
 
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private StringRedisTemplate stringRedisTemplate;
 
     @Resource
     private SyncThumb2DBJob syncThumb2DBJob;
 
-    @Scheduled(cron = "0 0 2 * * *")// 每天凌晨2点执行
+    @Resource
+    private ThumbSyncProperties thumbSyncProperties;
+
+    @Resource
+    private ThumbSyncLedgerMapper thumbSyncLedgerMapper;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final AtomicLong pendingSlices = new AtomicLong();
+
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("thumb.sync.pending.slices", pendingSlices, AtomicLong::get)
+                .description("Time slices whose temporary like data has not been synced to the database")
+                .register(meterRegistry);
+        Gauge.builder("thumb.sync.lag.seconds", lagSeconds, AtomicLong::get)
+                .description("Age of the oldest time slice that has not been synced to the database")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${thumb.sync.recovery-interval-millis:60000}")
     public void run() {
-        log.info("开始执行补偿任务");
-        // 查所有的时间分片，查看是否有还没有删除的分片
-        Set<String> thumbKeys = redisTemplate.keys(RedisKeyUtil.getTempThumbKey("") + "*");
-        if (CollUtil.isEmpty(thumbKeys)) {
-            log.info("没有需要处理的数据");
-            return;
+        long nowSecond = System.currentTimeMillis() / 1000;
+        long maxSlice = nowSecond - thumbSyncProperties.getRecoveryDelay().toSeconds();
+        Set<String> slices = stringRedisTemplate.opsForZSet()
+                .rangeByScore(ThumbConstant.THUMB_SYNC_PENDING_KEY, Double.NEGATIVE_INFINITY, maxSlice,
+                        0, thumbSyncProperties.getMaxSlicesPerRun());
+        if (CollUtil.isNotEmpty(slices)) {
+            log.info("开始执行补偿任务：{} 个时间片", slices.size());
+            // 失败的时间片仍留在索引中，下次执行时重试
+            syncThumb2DBJob.syncSlices(List.copyOf(slices));
+            log.info("补偿任务执行完成");
         }
+        updateLag(nowSecond);
+        cleanLedger();
+    }
 
-        Set<String> needHandleDataSet = new HashSet<>();
-        thumbKeys.stream()
-                .filter(ObjUtil::isNotNull)
-                .forEach(thumbKey -> needHandleDataSet.add(
-                        thumbKey.replace(ThumbConstant.TEMP_THUMB_KEY_PREFIX.formatted(""), "")
-                ));
-        if(CollUtil.isEmpty(needHandleDataSet)){
-            log.info("没有需要处理的数据");
-            return;
+    /**
+     * 删除超过保留时间的已完成台账
+     */
+    private void cleanLedger() {
+        Date before = new Date(System.currentTimeMillis() - thumbSyncProperties.getLedgerRetention().toMillis());
+        LambdaQueryWrapper<ThumbSyncLedger> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(ThumbSyncLedger::getFinished, true).lt(ThumbSyncLedger::getUpdateTime, before);
+        int deleted = thumbSyncLedgerMapper.delete(wrapper);
+        if (deleted > 0) {
+            log.info("删除过期同步台账 {} 条", deleted);
         }
+    }
 
-        // 补偿数据
-        for (String dataSet : needHandleDataSet) {
-            syncThumb2DBJob.syncThumb2DBByDate(dataSet);
+    private void updateLag(long nowSecond) {
+        Long size = stringRedisTemplate.opsForZSet().zCard(ThumbConstant.THUMB_SYNC_PENDING_KEY);
+        pendingSlices.set(size == null ? 0 : size);
+        Set<ZSetOperations.TypedTuple<String>> oldest = stringRedisTemplate.opsForZSet()
+                .rangeWithScores(ThumbConstant.THUMB_SYNC_PENDING_KEY, 0, 0);
+        if (CollUtil.isEmpty(oldest) || oldest.iterator().next().getScore() == null) {
+            lagSeconds.set(0);
+            return;
         }
-
-        log.info("补偿任务执行完成");
+        lagSeconds.set(Math.max(0, nowSecond - oldest.iterator().next().getScore().longValue()));
     }
 }
@@ -1,33 +1,58 @@
 package org.xiaobai.prettylike.job;
 
-import cn.hutool.core.collection.CollUtil;
-import cn.hutool.core.date.DateTime;
-import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.text.StrPool;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.xiaobai.prettylike.common.constant.ThumbConstant;
 import org.xiaobai.prettylike.common.enums.ThumbTypeEnum;
+import org.xiaobai.prettylike.config.ThumbSyncProperties;
+import org.xiaobai.prettylike.manager.thumb.TimeSliceClock;
 import org.xiaobai.prettylike.mapper.BlogMapper;
+import org.xiaobai.prettylike.mapper.ThumbMapper;
+import org.xiaobai.prettylike.mapper.ThumbSyncLedgerMapper;
 import org.xiaobai.prettylike.model.entity.Thumb;
+import org.xiaobai.prettylike.model.entity.ThumbSyncLedger;
 import org.xiaobai.prettylike.service.ThumbService;
 import org.xiaobai.prettylike.utils.RedisKeyUtil;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
 
 /**
  * 定时将 Redis 中的临时点赞数据同步到数据库
+ * 已同步的最新时间片记录为水位线，每次执行同步水位线之后所有已结束的时间片，停机后自动追赶；积压多个时间片时并行同步，
+ * 水位线只推进到连续同步成功的最后一个时间片，失败的时间片下次重试（已同步的时间片临时数据已删除，重试时为空操作）
+ * 临时数据按 HSCAN 分批读取，读取线程与写入线程之间通过有界队列衔接，数据库写入跟不上时读取线程阻塞；
+ * 每批在独立事务中写入，同一事务中把该批之后的 HSCAN 游标记入台账 thumb_sync_ledger，
+ * 任务中断或重复执行（包括补偿任务、多个实例）时从台账游标继续，每条数据只写入一次；
+ * 时间片同步完成后从待同步时间片索引中移除，剩余的临时数据与台账记录的条数和校验和比对，
+ * 不一致说明同步期间或之后仍有写入，重新写入一遍（写入是幂等的）后再删除，不会丢失迟到的数据
+ * 博客点赞数由点赞脚本按时间片、按博客聚合（thumb:count:{slice}），syncCounts() 独立同步，点赞数的延迟与点赞记录的积压无关
  */
 @Slf4j
 //@Component
 public class SyncThumb2DBJob {
 
+    private static final String SCAN_END = "0";
+
+    /**
+     * 待校验的临时点赞数据，改名之后的写入落在新的临时 key 中
+     */
+    private static final String VERIFY_KEY_SUFFIX = ":verify";
+
     @Resource
     private ThumbService thumbService;
 
@@ -35,85 +60,420 @@ public class SyncThumb2DBJob {
     private BlogMapper blogMapper;
 
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private ThumbMapper thumbMapper;
+
+    @Resource
+    private ThumbSyncLedgerMapper thumbSyncLedgerMapper;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
 
-    @Scheduled(fixedRate = 10000)
-    @Transactional(rollbackFor = Exception.class)
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @Resource
+    private ThumbSyncProperties thumbSyncProperties;
+
+    @Resource
+    private TimeSliceClock timeSliceClock;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private Counter entryCounter;
+    private Counter blogCountCounter;
+    private Timer chunkTimer;
+    private Counter mismatchCounter;
+
+    @PostConstruct
+    public void init() {
+        entryCounter = Counter.builder("thumb.sync.entries")
+                .description("Temporary like entries written from Redis to the database")
+                .register(meterRegistry);
+        blogCountCounter = Counter.builder("thumb.sync.blog.counts")
+                .description("Per-blog like count deltas written from Redis to the database")
+                .register(meterRegistry);
+        chunkTimer = Timer.builder("thumb.sync.chunk")
+                .description("Time to write one chunk of temporary like entries in its own transaction")
+                .register(meterRegistry);
+        mismatchCounter = Counter.builder("thumb.sync.slice.mismatches")
+                .description("Synced slices whose remaining temporary entries did not match the ledger and were re-synced")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 同步点赞记录，点赞数由 syncCounts() 单独同步，不受点赞记录积压影响
+     */
+    @Scheduled(fixedDelayString = "${thumb.sync.interval-millis:2000}")
     public void run() {
-        log.info("开始执行");
-        DateTime nowDate = DateUtil.date();
-        String date = DateUtil.format(nowDate, "HH:mm:") + (DateUtil.second(nowDate) / 10 - 1) * 10;
-        syncThumb2DBByDate(date);
-        log.info("临时数据同步完成");
+        List<Long> slices = closedSlicesAfter(ThumbConstant.THUMB_SYNC_WATERMARK_KEY);
+        if (slices.isEmpty()) {
+            return;
+        }
+        if (slices.size() > 1) {
+            log.info("追赶积压的时间片：{} 个，{} ~ {}", slices.size(), slices.getFirst(), slices.getLast());
+        }
+
+        int synced = syncSlices(slices.stream().map(String::valueOf).toList());
+        if (synced > 0) {
+            stringRedisTemplate.opsForValue().set(ThumbConstant.THUMB_SYNC_WATERMARK_KEY,
+                    String.valueOf(slices.get(synced - 1)));
+        }
+    }
+
+    /**
+     * 同步博客点赞数：每个时间片只需读取一个按博客聚合的小 hash
+     */
+    @Scheduled(fixedDelayString = "${thumb.sync.count-interval-millis:1000}")
+    public void syncCounts() {
+        Long watermark = null;
+        for (Long slice : closedSlicesAfter(ThumbConstant.THUMB_SYNC_COUNT_WATERMARK_KEY)) {
+            try {
+                syncSliceCounts(String.valueOf(slice));
+            } catch (Exception e) {
+                log.error("时间片 {} 点赞数同步失败，下次重试", slice, e);
+                break;
+            }
+            watermark = slice;
+        }
+        if (watermark != null) {
+            stringRedisTemplate.opsForValue().set(ThumbConstant.THUMB_SYNC_COUNT_WATERMARK_KEY, String.valueOf(watermark));
+        }
     }
 
     /**
-     * 根据传入时间片将临时点赞数据和取消点赞数据同步到数据库
-     * @param date 日期
+     * 水位线之后已结束的时间片，最多 thumb.sync.max-slices-per-run 个
+     * 第一次执行时只返回最近结束的时间片，更早的遗留数据由补偿任务处理
      */
-    public void syncThumb2DBByDate(String date) {
-        // 获取到临时点赞和取消点赞数据
-        // todo 如果数据量过大，可以分批读取数据
-        String tempThumbKey = RedisKeyUtil.getTempThumbKey(date);
-        // 这里获取到了临时点赞数(hash结构)
-        Map<Object, Object> allTempThumbMap = redisTemplate.opsForHash().entries(tempThumbKey);
-        boolean thumbMapEmpty = CollUtil.isEmpty(allTempThumbMap);
-        if (thumbMapEmpty) {
-            // 如果为空直接返回
+    private List<Long> closedSlicesAfter(String watermarkKey) {
+        long lastClosed = timeSliceClock.lastClosedSlice();
+        String watermarkValue = stringRedisTemplate.opsForValue().get(watermarkKey);
+        long watermark = watermarkValue == null ? lastClosed - timeSliceClock.widthSeconds() : Long.parseLong(watermarkValue);
+
+        List<Long> slices = new ArrayList<>();
+        for (long slice = timeSliceClock.nextSlice(watermark);
+             slice <= lastClosed && slices.size() < thumbSyncProperties.getMaxSlicesPerRun();
+             slice = timeSliceClock.nextSlice(slice)) {
+            slices.add(slice);
+        }
+        return slices;
+    }
+
+    /**
+     * 将一个时间片的博客点赞数增量写入数据库，与台账标记在同一事务中，重复执行时不会重复累计
+     * 时间片没有点赞数增量（升级前写入的时间片）时不做处理，由写入点赞记录时累计
+     */
+    private void syncSliceCounts(String slice) {
+        String blogCountKey = RedisKeyUtil.getTempBlogCountKey(slice);
+        Map<Object, Object> counts = stringRedisTemplate.opsForHash().entries(blogCountKey);
+        if (counts.isEmpty()) {
             return;
         }
+        Map<Long, Long> blogThumbCountMap = new HashMap<>();
+        counts.forEach((blogId, count) -> {
+            long delta = Long.parseLong(count.toString());
+            if (delta != 0) {
+                blogThumbCountMap.put(Long.valueOf(blogId.toString()), delta);
+            }
+        });
 
-        // 同步点赞到数据库
+        thumbSyncLedgerMapper.insertIfAbsent(slice);
+        transactionTemplate.executeWithoutResult(status -> {
+            // 已写入过时跳过
+            if (thumbSyncLedgerMapper.markCountsApplied(slice) == 0) {
+                return;
+            }
+            if (!blogThumbCountMap.isEmpty()) {
+                blogMapper.batchUpdateThumbCount(blogThumbCountMap);
+                blogCountCounter.increment(blogThumbCountMap.size());
+            }
+        });
+        stringRedisTemplate.unlink(blogCountKey);
+    }
+
+    /**
+     * 并行同步多个时间片，并行数量不超过 thumb.sync.parallelism
+     * @return 从第一个时间片开始连续同步成功的时间片数量
+     */
+    public int syncSlices(List<String> slices) {
+        int synced = 0;
+        try (ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(thumbSyncProperties.getParallelism(), slices.size())),
+                Thread.ofVirtual().name("thumb-sync-", 0).factory())) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (String slice : slices) {
+                futures.add(executor.submit(() -> syncThumb2DBBySlice(slice)));
+            }
+            boolean contiguous = true;
+            for (int i = 0; i < slices.size(); i++) {
+                try {
+                    futures.get(i).get();
+                    if (contiguous) {
+                        synced++;
+                    }
+                } catch (ExecutionException e) {
+                    log.error("时间片 {} 同步失败，下次重试", slices.get(i), e.getCause());
+                    contiguous = false;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        return synced;
+    }
+
+    /**
+     * 将一个时间片的临时点赞数据和取消点赞数据同步到数据库
+     * 每批写入与台账推进在同一事务中提交，重放时从台账游标继续，已完成的时间片直接跳过；
+     * 全部写入后删除临时数据并移出待同步索引
+     * @param slice 时间片 id
+     */
+    public void syncThumb2DBBySlice(String slice) {
+        // 点赞数可能还未被 syncCounts() 写入（补偿任务），先写入点赞数
+        syncSliceCounts(slice);
+        String tempThumbKey = RedisKeyUtil.getTempThumbKey(slice);
+        ThumbSyncLedger ledger = thumbSyncLedgerMapper.selectById(slice);
+        if (ledger == null && !Boolean.TRUE.equals(stringRedisTemplate.hasKey(tempThumbKey))) {
+            // 没有点赞数据的时间片不创建台账
+            stringRedisTemplate.opsForZSet().remove(ThumbConstant.THUMB_SYNC_PENDING_KEY, slice);
+            return;
+        }
+        if (ledger == null) {
+            thumbSyncLedgerMapper.insertIfAbsent(slice);
+            ledger = thumbSyncLedgerMapper.selectById(slice);
+        }
+        // 升级前写入的时间片没有点赞数增量，写入点赞记录时累计点赞数
+        boolean applyCounts = !Boolean.TRUE.equals(ledger.getCountsApplied());
+        if (Boolean.TRUE.equals(ledger.getFinished())) {
+            // 上次同步后未能删除临时数据，或者同步之后又有迟到的写入
+            finishSlice(slice, tempThumbKey, ledger, applyCounts);
+            return;
+        }
+        String cursor = ledger.getScanCursor();
+        if (!SCAN_END.equals(cursor)) {
+            log.info("从台账游标继续: key={}, cursor={}", tempThumbKey, cursor);
+        }
+
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(thumbSyncProperties.getQueueCapacity());
+        Thread scanner = Thread.startVirtualThread(() -> scan(tempThumbKey, cursor, queue));
+        long startTime = System.currentTimeMillis();
+        long entries = 0;
+        int chunks = 0;
+        try {
+            while (true) {
+                Chunk chunk = queue.take();
+                if (chunk.error() != null) {
+                    throw new RuntimeException("读取临时点赞数据失败", chunk.error());
+                }
+                // 最后一批即使为空也要提交，标记台账已完成
+                chunkTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                    if (!chunk.entries().isEmpty()) {
+                        syncChunk(chunk.entries(), applyCounts);
+                    }
+                    if (thumbSyncLedgerMapper.advance(slice, chunk.startCursor(), chunk.cursor(),
+                            chunk.entries().size(), checksum(chunk.entries()), chunk.last()) == 0) {
+                        throw new RuntimeException("时间片 " + slice + " 已被其他任务同步");
+                    }
+                }));
+                entryCounter.increment(chunk.entries().size());
+                entries += chunk.entries().size();
+                chunks++;
+                if (chunk.last()) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("同步临时点赞数据被中断");
+        } finally {
+            // 写入失败时读取线程可能阻塞在队列上
+            scanner.interrupt();
+        }
+
+        finishSlice(slice, tempThumbKey, thumbSyncLedgerMapper.selectById(slice), applyCounts);
+        if (entries > 0) {
+            long cost = Math.max(1, System.currentTimeMillis() - startTime);
+            log.info("时间片 {} 同步完成：{} 条，{} 批，耗时 {}ms，{} 条/秒", slice, entries, chunks, cost, entries * 1000 / cost);
+        }
+    }
+
+    /**
+     * 时间片已全部写入数据库，移出待同步索引，校验后删除临时数据
+     * 先移出索引再把临时数据改名：改名之后的写入会重新登记时间片（ZADD NX），由补偿任务再次进入这里；
+     * 改名后的数据不再变化，条数和校验和与台账一致时直接删除，否则重新写入一遍再删除
+     * @param ledger 已完成的台账，记录了同步时写入的条数和校验和
+     */
+    private void finishSlice(String slice, String tempThumbKey, ThumbSyncLedger ledger, boolean applyCounts) {
+        stringRedisTemplate.opsForZSet().remove(ThumbConstant.THUMB_SYNC_PENDING_KEY, slice);
+        if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(tempThumbKey))) {
+            return;
+        }
+        String verifyKey = tempThumbKey + VERIFY_KEY_SUFFIX;
+        stringRedisTemplate.rename(tempThumbKey, verifyKey);
+
+        long entries = 0;
+        long checksum = 0;
+        String cursor = SCAN_END;
+        do {
+            Map<String, String> page = new HashMap<>();
+            cursor = hscan(verifyKey, cursor, page);
+            entries += page.size();
+            checksum += checksum(page);
+        } while (!SCAN_END.equals(cursor));
+
+        if (entries != ledger.getAppliedEntries() || checksum != ledger.getChecksum()) {
+            // 同步期间被修改的记录可能已按旧值写入，同步之后的写入还没有写入
+            log.warn("时间片 {} 剩余临时数据与台账不一致，重新写入：台账 {} 条 / 校验和 {}，剩余 {} 条 / 校验和 {}",
+                    slice, ledger.getAppliedEntries(), ledger.getChecksum(), entries, checksum);
+            mismatchCounter.increment();
+            resync(verifyKey, applyCounts);
+        }
+        stringRedisTemplate.unlink(verifyKey);
+    }
+
+    /**
+     * 分批重新写入临时点赞数据，每批独立事务
+     * 插入忽略已存在的记录、删除只删除存在的记录，点赞数只按实际影响的行累计，已写入的记录不会重复写入
+     */
+    private void resync(String key, boolean applyCounts) {
+        String cursor = SCAN_END;
+        do {
+            Map<String, String> entries = new LinkedHashMap<>();
+            do {
+                cursor = hscan(key, cursor, entries);
+            } while (!SCAN_END.equals(cursor) && entries.size() < thumbSyncProperties.getChunkSize());
+            if (!entries.isEmpty()) {
+                chunkTimer.record(() -> transactionTemplate.executeWithoutResult(status -> syncChunk(entries, applyCounts)));
+                entryCounter.increment(entries.size());
+            }
+        } while (!SCAN_END.equals(cursor));
+    }
+
+    /**
+     * 一批临时点赞数据的校验和，各记录 CRC32 之和，与分批方式和顺序无关
+     */
+    static long checksum(Map<String, String> entries) {
+        long checksum = 0;
+        CRC32 crc32 = new CRC32();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            crc32.reset();
+            crc32.update((entry.getKey() + "=" + entry.getValue()).getBytes(StandardCharsets.UTF_8));
+            checksum += crc32.getValue();
+        }
+        return checksum;
+    }
+
+    /**
+     * 写入一批临时点赞数据，调用方负责开启事务
+     * @param entries key 为 {userId}:{blogId}，value 为 1:点赞 -1:取消点赞 0:不变
+     * @param applyCounts 是否同时累计博客点赞数，只按实际插入 / 删除的记录累计，重复写入不会重复计数
+     */
+    private void syncChunk(Map<String, String> entries, boolean applyCounts) {
         Map<Long, Long> blogThumbCountMap = new HashMap<>();
-        ArrayList<Thumb> thumbList = new ArrayList<>();
+        List<Thumb> thumbList = new ArrayList<>();
         LambdaQueryWrapper<Thumb> wrapper = new LambdaQueryWrapper<>();
         boolean needRemove = false;
-        // 遍历所有点赞记录
-        for (Object userIdBlogIdObj : allTempThumbMap.keySet()) {
-            // key 为 {userId}:{BlogId} value 为 0:点赞 -1:取消点赞
-            String userIdBlogId = (String) userIdBlogIdObj;
-            String[] userIdAndBlogId = userIdBlogId.split(StrPool.COLON);
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            String[] userIdAndBlogId = entry.getKey().split(StrPool.COLON);
             Long userId = Long.valueOf(userIdAndBlogId[0]);
             Long blogId = Long.valueOf(userIdAndBlogId[1]);
-            // -1 取消点赞，1 点赞
-            Integer thumbType = Integer.valueOf(allTempThumbMap.get(userIdBlogId).toString());
+            int thumbType = Integer.parseInt(entry.getValue());
             if (thumbType == ThumbTypeEnum.INCR.getValue()) {
                 Thumb thumb = new Thumb();
+                thumb.setId(IdWorker.getId());
                 thumb.setUserId(userId);
                 thumb.setBlogId(blogId);
                 thumbList.add(thumb);
             } else if (thumbType == ThumbTypeEnum.DECR.getValue()) {
-                // 拼接查询条件，批量删除
-                // todo 数据量过大，可以分批操作
                 needRemove = true;
-                // or 会拼接条件
+                // or 会拼接条件，条件数量不超过一批的大小
                 wrapper.or().eq(Thumb::getUserId, userId).eq(Thumb::getBlogId, blogId);
-            } else {
-                if (thumbType != ThumbTypeEnum.NON.getValue()) {
-                    log.warn("数据异常：{}", userId + "," + blogId + "," + thumbType);
-                }
-                continue;
+            } else if (thumbType != ThumbTypeEnum.NON.getValue()) {
+                log.warn("数据异常：{}", userId + "," + blogId + "," + thumbType);
             }
-            // 计算点赞增量
-            blogThumbCountMap.put(blogId, blogThumbCountMap.getOrDefault(blogId, 0L) + thumbType);
         }
 
-        // 批量插入
-        thumbService.saveBatch(thumbList);
-        // 批量删除
-        if(needRemove){
-            thumbService.remove(wrapper);
+        // (userId, blogId) 已存在时跳过，避免台账之外的重复数据导致插入失败
+        if (!thumbList.isEmpty() && thumbMapper.insertIgnoreBatch(thumbList) > 0 && applyCounts) {
+            // 预先分配了 id，按 id 查询即可知道哪些记录被插入
+            thumbService.list(new LambdaQueryWrapper<Thumb>()
+                            .select(Thumb::getBlogId)
+                            .in(Thumb::getId, thumbList.stream().map(Thumb::getId).toList()))
+                    .forEach(thumb -> blogThumbCountMap.merge(thumb.getBlogId(), 1L, Long::sum));
         }
-
-        // 批量更新博客点赞量
-        if(!blogThumbCountMap.isEmpty()){
+        if (needRemove) {
+            // 加锁读取后按 id 删除，只有实际删除的记录计入减量
+            wrapper.select(Thumb::getId, Thumb::getBlogId).last("for update");
+            List<Thumb> removed = thumbService.list(wrapper);
+            if (!removed.isEmpty()) {
+                thumbService.removeByIds(removed.stream().map(Thumb::getId).toList());
+                removed.forEach(thumb -> blogThumbCountMap.merge(thumb.getBlogId(), -1L, Long::sum));
+            }
+        }
+        if (applyCounts && !blogThumbCountMap.isEmpty()) {
             blogMapper.batchUpdateThumbCount(blogThumbCountMap);
         }
+    }
 
-        // 异步删除 Redis 中的临时数据
-        Thread.startVirtualThread(() -> {
-            redisTemplate.delete(tempThumbKey);
-        });
+    /**
+     * 从游标处 HSCAN 临时点赞数据，凑够一批后放入队列，队列满时阻塞
+     * 最后一批（可能为空）标记 last，出错时放入带异常的批次
+     */
+    private void scan(String key, String cursor, BlockingQueue<Chunk> queue) {
+        try {
+            Map<String, String> entries = new LinkedHashMap<>();
+            String startCursor = cursor;
+            do {
+                cursor = hscan(key, cursor, entries);
+                boolean last = SCAN_END.equals(cursor);
+                if (last || entries.size() >= thumbSyncProperties.getChunkSize()) {
+                    queue.put(new Chunk(entries, startCursor, cursor, last, null));
+                    entries = new LinkedHashMap<>();
+                    startCursor = cursor;
+                }
+            } while (!SCAN_END.equals(cursor));
+        } catch (InterruptedException e) {
+            // 写入线程已退出
+        } catch (Exception e) {
+            try {
+                queue.put(new Chunk(Map.of(), cursor, cursor, true, e));
+            } catch (InterruptedException ignored) {
+                // 写入线程已退出
+            }
+        }
+    }
+
+    /**
+     * 执行一次 HSCAN，结果写入 entries
+     * Spring 的 hash scan 不能从指定游标开始，这里直接发送命令
+     * @return 下一次的游标，0 表示扫描结束
+     */
+    @SuppressWarnings("unchecked")
+    private String hscan(String key, String cursor, Map<String, String> entries) {
+        List<Object> reply = (List<Object>) stringRedisTemplate.execute((RedisCallback<Object>) connection ->
+                connection.execute("HSCAN", bytes(key), bytes(cursor),
+                        bytes("COUNT"), bytes(String.valueOf(thumbSyncProperties.getScanCount()))));
+        if (reply == null || reply.size() != 2) {
+            throw new RuntimeException("HSCAN 返回格式错误");
+        }
+        List<byte[]> fieldsAndValues = (List<byte[]>) reply.get(1);
+        for (int i = 0; i + 1 < fieldsAndValues.size(); i += 2) {
+            entries.put(new String(fieldsAndValues.get(i), StandardCharsets.UTF_8),
+                    new String(fieldsAndValues.get(i + 1), StandardCharsets.UTF_8));
+        }
+        return new String((byte[]) reply.get(0), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
     }
 
+    /**
+     * 一批临时点赞数据
+     * @param startCursor 读取这一批时的起始 HSCAN 游标
+     * @param cursor 这一批之后的 HSCAN 游标
+     */
+    private record Chunk(Map<String, String> entries, String startCursor, String cursor, boolean last, Throwable error) {
+    }
 }
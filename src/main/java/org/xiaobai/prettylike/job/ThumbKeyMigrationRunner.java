@@ -0,0 +1,173 @@
+package org.xiaobai.prettylike.job;
+
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.xiaobai.prettylike.common.constant.RedisLuaScriptConstant;
+import org.xiaobai.prettylike.common.constant.ThumbConstant;
+import org.xiaobai.prettylike.utils.RedisKeyUtil;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 用户点赞记录迁移工具，启动时执行一次（thumb.migration.enabled=true）
+ * 1.旧格式 thumb:{userId}：按博客拆分到分桶 thumb:{userId}:{bucket}，分桶已存在时以分桶为准，迁移后删除旧 key
+ * 2.分桶中的值统一为十进制 long：Jackson 写入的 true、带引号的字符串、带类型信息的数组等改写为对应的整数
+ * 3.未登记在待同步时间片索引中的临时点赞数据 thumb:temp:{slice} 补登记，旧格式（HH:mm:ss）的时间片 score 为 0，最先被补偿任务同步
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "thumb.migration", name = "enabled", havingValue = "true")
+public class ThumbKeyMigrationRunner implements ApplicationRunner {
+
+    private static final Pattern LEGACY_USER_THUMB_KEY = Pattern.compile("^thumb:(\\d+)$");
+    private static final Pattern USER_THUMB_BUCKET_KEY = Pattern.compile("^thumb:\\d+:\\d+$");
+    private static final Pattern TEMP_THUMB_KEY = Pattern.compile("^thumb:temp:(.+)$");
+    private static final Pattern NUMBER = Pattern.compile("^-?\\d+$");
+    // ["java.lang.Long",123] 或 "123"
+    private static final Pattern WRAPPED_NUMBER = Pattern.compile("^(?:\\[\\s*\"[\\w.$]+\"\\s*,\\s*)?\"?(-?\\d+)\"?\\s*]?$");
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long startTime = System.currentTimeMillis();
+        int legacyKeys = 0;
+        int createdBuckets = 0;
+        int skippedBuckets = 0;
+        int rewrittenValues = 0;
+        int indexedSlices = 0;
+
+        // 先收集 key 再处理，避免迁移过程中新建的分桶影响扫描
+        List<String> keys = new ArrayList<>();
+        String pattern = ThumbConstant.USER_THUMB_KEY_PREFIX + "*";
+        try (Cursor<String> cursor = stringRedisTemplate.scan(ScanOptions.scanOptions().match(pattern).count(1000).build())) {
+            cursor.forEachRemaining(keys::add);
+        }
+
+        for (String key : keys) {
+            Matcher legacy = LEGACY_USER_THUMB_KEY.matcher(key);
+            if (legacy.matches()) {
+                int[] result = migrateLegacyKey(key, Long.parseLong(legacy.group(1)));
+                createdBuckets += result[0];
+                skippedBuckets += result[1];
+                legacyKeys++;
+            } else if (USER_THUMB_BUCKET_KEY.matcher(key).matches()) {
+                rewrittenValues += normalizeBucket(key);
+            } else {
+                Matcher temp = TEMP_THUMB_KEY.matcher(key);
+                if (temp.matches() && indexSlice(temp.group(1))) {
+                    indexedSlices++;
+                }
+            }
+        }
+
+        log.info("点赞记录迁移完成：旧 key {} 个，新建分桶 {} 个，已存在跳过 {} 个，改写值 {} 个，补登记时间片 {} 个，耗时 {}ms",
+                legacyKeys, createdBuckets, skippedBuckets, rewrittenValues, indexedSlices,
+                System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 拆分旧格式的用户点赞 hash
+     * @return [新建的分桶数, 已存在而跳过的分桶数]
+     */
+    private int[] migrateLegacyKey(String key, long userId) {
+        Map<Integer, List<String>> argsByBucket = new HashMap<>();
+        try (Cursor<Map.Entry<Object, Object>> cursor = stringRedisTemplate.opsForHash()
+                .scan(key, ScanOptions.scanOptions().count(1000).build())) {
+            while (cursor.hasNext()) {
+                Map.Entry<Object, Object> entry = cursor.next();
+                String field = entry.getKey().toString();
+                String value = normalize(entry.getValue().toString());
+                if (!NUMBER.matcher(field).matches() || value == null) {
+                    log.warn("跳过无法识别的点赞记录: key={}, field={}, value={}", key, field, entry.getValue());
+                    continue;
+                }
+                argsByBucket.computeIfAbsent(RedisKeyUtil.getUserThumbBucket(Long.parseLong(field)), k -> {
+                    List<String> args = new ArrayList<>();
+                    args.add(Long.toString(ThumbConstant.USER_THUMB_BUCKET_TTL_SECONDS));
+                    return args;
+                }).addAll(List.of(field, value));
+            }
+        }
+
+        int created = 0;
+        int skipped = 0;
+        for (Map.Entry<Integer, List<String>> entry : argsByBucket.entrySet()) {
+            // 与从数据库加载分桶使用同一个脚本：分桶已存在时说明切换后已有读写，以分桶为准
+            Long result = stringRedisTemplate.execute(RedisLuaScriptConstant.USER_THUMB_LOAD_SCRIPT,
+                    List.of(RedisKeyUtil.getUserThumbBucketKey(userId, entry.getKey())),
+                    entry.getValue().toArray());
+            if (result != null && result == 1) {
+                created++;
+            } else {
+                skipped++;
+            }
+        }
+        stringRedisTemplate.unlink(key);
+        return new int[]{created, skipped};
+    }
+
+    /**
+     * 登记到待同步时间片索引，已登记时不修改
+     * @return 是否新登记
+     */
+    private boolean indexSlice(String slice) {
+        double score = NUMBER.matcher(slice).matches() ? Long.parseLong(slice) : 0;
+        return Boolean.TRUE.equals(stringRedisTemplate.opsForZSet()
+                .addIfAbsent(ThumbConstant.THUMB_SYNC_PENDING_KEY, slice, score));
+    }
+
+    /**
+     * 改写分桶中不是十进制整数的值
+     * @return 改写的值的数量
+     */
+    private int normalizeBucket(String key) {
+        Map<String, String> rewrites = new HashMap<>();
+        try (Cursor<Map.Entry<Object, Object>> cursor = stringRedisTemplate.opsForHash()
+                .scan(key, ScanOptions.scanOptions().count(1000).build())) {
+            while (cursor.hasNext()) {
+                Map.Entry<Object, Object> entry = cursor.next();
+                String raw = entry.getValue().toString();
+                if (NUMBER.matcher(raw).matches()) {
+                    continue;
+                }
+                String value = normalize(raw);
+                if (value == null) {
+                    log.warn("跳过无法识别的点赞记录: key={}, field={}, value={}", key, entry.getKey(), raw);
+                    continue;
+                }
+                rewrites.put(entry.getKey().toString(), value);
+            }
+        }
+        if (!rewrites.isEmpty()) {
+            stringRedisTemplate.opsForHash().putAll(key, rewrites);
+        }
+        return rewrites.size();
+    }
+
+    /**
+     * 转换为十进制 long 字符串
+     * @return 无法识别时返回 null
+     */
+    static String normalize(String raw) {
+        String value = raw.trim();
+        if (NUMBER.matcher(value).matches()) {
+            return value;
+        }
+        if ("true".equals(value) || "\"true\"".equals(value)) {
+            return "1";
+        }
+        Matcher matcher = WRAPPED_NUMBER.matcher(value);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+}
@@ -11,11 +11,14 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.xiaobai.prettylike.common.constant.ThumbConstant;
 import org.xiaobai.prettylike.listener.thumb.msg.ThumbEvent;
+import org.xiaobai.prettylike.manager.thumb.UserThumbStore;
 import org.xiaobai.prettylike.model.entity.Thumb;
 import org.xiaobai.prettylike.service.ThumbService;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -24,6 +27,12 @@ import java.util.stream.Collectors;
 @Slf4j
 @Component
 public class ThumbReconcileJob {
+
+    /**
+     * 用户点赞分桶 key：thumb:{userId}:{bucket}
+     */
+    private static final Pattern USER_THUMB_BUCKET_KEY = Pattern.compile("^thumb:(\\d+):(\\d+)$");
+
     @Resource
     private RedisTemplate<String, Object> redisTemplate;
 
@@ -40,41 +49,39 @@ public class ThumbReconcileJob {
     public void run() {
         long startTime = System.currentTimeMillis();
 
-        // 1.获取该分片下所有用户ID
-        Set<Long> userIds = new HashSet<>();
+        // 1.逐个扫描用户点赞分桶，每次只比对一个分桶，避免一次加载用户的全部点赞记录
         String pattern = ThumbConstant.USER_THUMB_KEY_PREFIX + "*";
         // 使用游标做全量key扫描的优化，避免一次获取所有key
         try (Cursor<String> cursor = redisTemplate.scan(ScanOptions.scanOptions().match(pattern).count(1000).build())) {
             while (cursor.hasNext()) {
                 String key = cursor.next();
-                Long userId = Long.valueOf(key.replace(ThumbConstant.USER_THUMB_KEY_PREFIX, ""));
-                userIds.add(userId);
-            }
-        }
+                // thumb:temp:* 等其他 key 也会被匹配到，只处理 thumb:{userId}:{bucket}
+                Matcher matcher = USER_THUMB_BUCKET_KEY.matcher(key);
+                if (!matcher.matches()) {
+                    continue;
+                }
+                Long userId = Long.valueOf(matcher.group(1));
+                int bucket = Integer.parseInt(matcher.group(2));
 
-        // 2.逐用户比对
-        userIds.forEach(userId -> {
-            // 从redis中获取用户点赞的所有blogId
-            Set<Long> redisBlogIds = redisTemplate.opsForHash().keys(ThumbConstant.USER_THUMB_KEY_PREFIX + userId).stream()
-                    .map(each -> Long.valueOf(each.toString()))
-                    .collect(Collectors.toSet());
+                // 2.从redis中获取该分桶的所有blogId
+                Set<Long> redisBlogIds = UserThumbStore.toBlogIds(redisTemplate.opsForHash().keys(key));
 
-            // 从数据库中查询用户点赞的所有blogId
-            List<Thumb> thumbList = thumbService.lambdaQuery()
-                    .eq(Thumb::getUserId, userId)
-                    .list();
-            Set<Long> mysqlBlogIds = Optional.ofNullable(thumbList)
-                    .orElse(new ArrayList<>())
-                    .stream()
-                    .map(Thumb::getBlogId)
-                    .collect(Collectors.toSet());
+                // 3.从数据库中查询该分桶的所有blogId
+                List<Thumb> thumbList = thumbService.list(UserThumbStore.bucketQuery(userId, bucket)
+                        .select(Thumb::getBlogId));
+                Set<Long> mysqlBlogIds = Optional.ofNullable(thumbList)
+                        .orElse(new ArrayList<>())
+                        .stream()
+                        .map(Thumb::getBlogId)
+                        .collect(Collectors.toSet());
 
-            // 计算差异
-            Set<Long> diffBlogIds = Sets.difference(redisBlogIds,mysqlBlogIds);
+                // 计算差异
+                Set<Long> diffBlogIds = Sets.difference(redisBlogIds, mysqlBlogIds);
 
-            // 4.发送补偿事件
-            sendCompensationEvents(userId,diffBlogIds);
-        });
+                // 4.发送补偿事件
+                sendCompensationEvents(userId, diffBlogIds);
+            }
+        }
 
         log.info("对账任务完成，耗时：{}ms", System.currentTimeMillis() - startTime);
     }
@@ -86,7 +93,12 @@ public class ThumbReconcileJob {
      */
     private void sendCompensationEvents(Long userId,Set<Long> blogIds) {
         blogIds.forEach(blogId -> {
-            ThumbEvent thumbEvent = new ThumbEvent(userId, blogId, ThumbEvent.EventType.INCR, LocalDateTime.now());
+            ThumbEvent thumbEvent = ThumbEvent.builder()
+                    .userId(userId)
+                    .blogId(blogId)
+                    .type(ThumbEvent.EventType.INCR)
+                    .eventTime(LocalDateTime.now())
+                    .build();
             try {
                 pulsarTemplate.sendAsync("thumb-topic", thumbEvent)
                         .exceptionally(ex -> {
@@ -1,7 +1,9 @@
 package org.xiaobai.prettylike.listener.thumb;
 
+import cn.hutool.core.collection.ListUtil;
 import cn.hutool.core.lang.Pair;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pulsar.client.api.Message;
@@ -13,6 +15,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.xiaobai.prettylike.listener.thumb.msg.ThumbEvent;
 import org.xiaobai.prettylike.mapper.BlogMapper;
+import org.xiaobai.prettylike.mapper.ThumbMapper;
 import org.xiaobai.prettylike.model.entity.Thumb;
 import org.xiaobai.prettylike.service.ThumbService;
 
@@ -20,6 +23,7 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * 点赞消费者
@@ -29,7 +33,10 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ThumbConsumer {
 
+    private static final int INSERT_BATCH_SIZE = 500;
+
     private final BlogMapper blogMapper;
+    private final ThumbMapper thumbMapper;
     private final ThumbService thumbService;
 
     /**
@@ -78,6 +85,7 @@ public class ThumbConsumer {
         List<ThumbEvent> eventList = messageList.stream()
                 .map(Message::getValue)
                 .filter(Objects::nonNull)
+                .flatMap(ThumbConsumer::expand)
                 .toList();
 
         // 按（userId,blogId）分组，并获取每个分组的最新事件
@@ -105,7 +113,6 @@ public class ThumbConsumer {
                     ThumbEvent.EventType finalAction = event.getType();
 
                     if (finalAction == ThumbEvent.EventType.INCR) {
-                        countMap.merge(event.getBlogId(), 1L, Long::sum);
                         Thumb thumb = new Thumb();
                         thumb.setUserId(event.getUserId());
                         thumb.setBlogId(event.getBlogId());
@@ -113,17 +120,31 @@ public class ThumbConsumer {
                     } else {
                         needRemove.set(true);
                         wrapper.or().eq(Thumb::getUserId, event.getUserId()).eq(Thumb::getBlogId, event.getBlogId());
-                        countMap.merge(event.getBlogId(), -1L, Long::sum);
                     }
                 }
         );
 
-        // 批量更新数据库
+        // 批量更新数据库：只为实际删除 / 插入的记录更新点赞数，重复投递的消息不会重复计数
         if(needRemove.get()){
-            thumbService.remove(wrapper);
+            batchRemoveThumbs(wrapper, countMap);
         }
+        batchInsertThumbs(thumbList, countMap);
         batchUpdateBlogs(countMap);
-        batchInsertThumbs(thumbList);
+    }
+
+    /**
+     * 批量点赞消息拆分为单篇博客的事件
+     */
+    private static Stream<ThumbEvent> expand(ThumbEvent event) {
+        if (event.getBlogIds() == null || event.getBlogIds().isEmpty()) {
+            return Stream.of(event);
+        }
+        return event.getBlogIds().stream().map(blogId -> ThumbEvent.builder()
+                .userId(event.getUserId())
+                .blogId(blogId)
+                .type(event.getType())
+                .eventTime(event.getEventTime())
+                .build());
     }
 
     public void batchUpdateBlogs(Map<Long, Long> countMap) {
@@ -132,10 +153,38 @@ public class ThumbConsumer {
         }
     }
 
-    public void batchInsertThumbs(List<Thumb> thumbs) {
-        if (!thumbs.isEmpty()) {
-            // 分批次插入
-            thumbService.saveBatch(thumbs, 500);
+    /**
+     * 删除点赞记录，被删除的记录计入点赞数减量
+     * 加锁读取后按 id 删除，同一条记录被并发删除时只有一方能读到
+     */
+    public void batchRemoveThumbs(LambdaQueryWrapper<Thumb> wrapper, Map<Long, Long> countMap) {
+        wrapper.select(Thumb::getId, Thumb::getBlogId).last("for update");
+        List<Thumb> removed = thumbService.list(wrapper);
+        if (removed.isEmpty()) {
+            return;
+        }
+        thumbService.removeByIds(removed.stream().map(Thumb::getId).toList());
+        removed.forEach(thumb -> countMap.merge(thumb.getBlogId(), -1L, Long::sum));
+    }
+
+    /**
+     * 插入点赞记录，(userId, blogId) 已存在的记录跳过，实际插入的记录计入点赞数增量
+     * 预先分配 id，插入后按 id 查询即可知道哪些记录被插入
+     */
+    public void batchInsertThumbs(List<Thumb> thumbs, Map<Long, Long> countMap) {
+        if (thumbs.isEmpty()) {
+            return;
+        }
+        thumbs.forEach(thumb -> thumb.setId(IdWorker.getId()));
+        // 分批次插入
+        for (List<Thumb> batch : ListUtil.partition(thumbs, INSERT_BATCH_SIZE)) {
+            if (thumbMapper.insertIgnoreBatch(batch) == 0) {
+                continue;
+            }
+            List<Thumb> inserted = thumbService.list(new LambdaQueryWrapper<Thumb>()
+                    .select(Thumb::getBlogId)
+                    .in(Thumb::getId, batch.stream().map(Thumb::getId).toList()));
+            inserted.forEach(thumb -> countMap.merge(thumb.getBlogId(), 1L, Long::sum));
         }
     }
 }
@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 点赞事件
@@ -18,6 +19,8 @@ public class ThumbEvent {
 
     private Long userId;
     private Long blogId;
+    // 批量点赞时合并为一条消息，此时 blogId 为空
+    private List<Long> blogIds;
     // INCR/DECR
     private EventType type;
     private LocalDateTime eventTime;
@@ -0,0 +1,128 @@
+package org.xiaobai.prettylike.manager.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.xiaobai.prettylike.config.LocalCacheProperties;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地缓存事件汇总
+ * 读路径上只对 LongAdder 计数，不打印日志；计数通过 Micrometer 暴露，并定时输出一行汇总日志。
+ * 需要排查某个 key 时，可以把它加入跟踪列表，只有被跟踪的 key 会逐条打印日志
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CacheEventReporter {
+
+    public enum CacheEvent {
+        /**
+         * 本地缓存命中
+         */
+        LOCAL_HIT,
+        /**
+         * 本地缓存未命中，Redis 命中
+         */
+        REDIS_HIT,
+        /**
+         * 本地缓存和 Redis 都未命中
+         */
+        REDIS_MISS,
+        /**
+         * 热 key 写入本地缓存
+         */
+        PROMOTED
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    private final LocalCacheProperties localCacheProperties;
+
+    private final LongAdder[] counters = new LongAdder[CacheEvent.values().length];
+    private final long[] lastReported = new long[CacheEvent.values().length];
+
+    private final Set<String> tracedKeys = ConcurrentHashMap.newKeySet();
+    // 跟踪列表为空时读路径只读取这个标记
+    private volatile boolean tracing;
+
+    @PostConstruct
+    public void init() {
+        for (CacheEvent event : CacheEvent.values()) {
+            LongAdder counter = new LongAdder();
+            counters[event.ordinal()] = counter;
+            FunctionCounter.builder("cache.events", counter, LongAdder::sum)
+                    .tag("event", event.name().toLowerCase())
+                    .description("Local cache read path events")
+                    .register(meterRegistry);
+        }
+        localCacheProperties.getTraceKeys().forEach(this::trace);
+    }
+
+    public void record(CacheEvent event) {
+        counters[event.ordinal()].increment();
+    }
+
+    /**
+     * 是否有 key 正在被跟踪，读路径应先判断它，再去构造 key
+     */
+    public boolean isTracing() {
+        return tracing;
+    }
+
+    /**
+     * 记录被跟踪 key 的事件
+     */
+    public void trace(String key, CacheEvent event, Object value) {
+        if (tracedKeys.contains(key)) {
+            log.info("缓存跟踪 {} {} = {}", event, key, value);
+        }
+    }
+
+    /**
+     * 开始跟踪 key
+     */
+    public void trace(String key) {
+        tracedKeys.add(key);
+        tracing = true;
+    }
+
+    /**
+     * 停止跟踪 key
+     */
+    public void untrace(String key) {
+        tracedKeys.remove(key);
+        tracing = !tracedKeys.isEmpty();
+    }
+
+    public Set<String> tracedKeys() {
+        return Set.copyOf(tracedKeys);
+    }
+
+    /**
+     * 每分钟输出一次各事件的增量
+     */
+    @Scheduled(fixedRate = 1, timeUnit = TimeUnit.MINUTES)
+    public synchronized void report() {
+        StringBuilder summary = new StringBuilder();
+        long total = 0;
+        for (CacheEvent event : CacheEvent.values()) {
+            long current = counters[event.ordinal()].sum();
+            long delta = current - lastReported[event.ordinal()];
+            lastReported[event.ordinal()] = current;
+            total += delta;
+            summary.append(' ').append(event.name().toLowerCase()).append('=').append(delta);
+        }
+        if (total > 0) {
+            log.info("本地缓存最近一分钟:{}", summary);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package org.xiaobai.prettylike.manager.cache;
+
+import cn.hutool.core.util.IdUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * 本地缓存失效广播
+ * 某个实例修改了数据后，通知其他实例把本地缓存中对应的 key 剔除。
+ * 短时间内的失效请求会先合并去重，再按批次广播，避免每次写操作都发送一条消息
+ * 每次失效都会记录一个递增的序号：从 Redis 读取前先取 {@link #stamp()}，写入本地缓存后用 {@link #invalidatedSince}
+ * 检查期间是否有失效，有则剔除刚写入的值，避免“读到旧值 → 失效消息到达 → 旧值写入本地缓存”后旧值一直留到过期
+ * 广播不保证送达，丢失的消息只能靠本地缓存的过期时间兜底
+ */
+@Slf4j
+public class CacheInvalidationBus {
+
+    /**
+     * 失效消息广播频道
+     */
+    static final String INVALIDATE_CHANNEL = "cache:invalidate";
+
+    /**
+     * 单条消息最多携带的 key 数量，待发送的 key 达到该数量时立即发送
+     */
+    private static final int MAX_BATCH_SIZE = 256;
+
+    /**
+     * 定时发送的间隔
+     */
+    private static final long FLUSH_INTERVAL_MILLIS = 20;
+
+    /**
+     * 失效序号按 key 的哈希分段记录，不同 key 落在同一段时只会多剔除一次
+     */
+    private static final int STAMP_SLOTS = 4096;
+
+    private final ClusterChannel clusterChannel;
+
+    /**
+     * 收到其他实例的失效消息后，剔除本地缓存
+     */
+    private final Consumer<Collection<String>> localInvalidator;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String instanceId = IdUtil.fastSimpleUUID();
+
+    /**
+     * 待发送的 key，同一个 key 只会发送一次
+     */
+    private final Set<String> pendingKeys = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * 每段最近一次失效的序号
+     */
+    private final AtomicLongArray invalidatedAt = new AtomicLongArray(STAMP_SLOTS);
+
+    private Thread flusher;
+
+    public CacheInvalidationBus(ClusterChannel clusterChannel, Consumer<Collection<String>> localInvalidator) {
+        this.clusterChannel = clusterChannel;
+        this.localInvalidator = localInvalidator;
+    }
+
+    public void start() {
+        clusterChannel.subscribe(INVALIDATE_CHANNEL, this::onMessage);
+        flusher = Thread.ofVirtual().name("cache-invalidation-bus").start(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(FLUSH_INTERVAL_MILLIS);
+                    flush();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    log.error("本地缓存失效消息发送失败", e);
+                }
+            }
+        });
+    }
+
+    public void stop() {
+        if (flusher != null) {
+            flusher.interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * 当前失效序号，在从 Redis 读取之前获取
+     */
+    public long stamp() {
+        return sequence.get();
+    }
+
+    /**
+     * 获取 stamp 之后 key 是否被失效过，是则读到的值可能是旧值，不能留在本地缓存中
+     */
+    public boolean invalidatedSince(String key, long stamp) {
+        return invalidatedAt.get(slot(key)) > stamp;
+    }
+
+    private void markInvalidated(String key) {
+        invalidatedAt.accumulateAndGet(slot(key), sequence.incrementAndGet(), Math::max);
+    }
+
+    private static int slot(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (STAMP_SLOTS - 1);
+    }
+
+    /**
+     * 通知其他实例剔除 key
+     * 本实例同样记录失效序号，需要在更新本地缓存之前调用
+     * @param key 本地缓存 key
+     */
+    public void invalidate(String key) {
+        markInvalidated(key);
+        pendingKeys.add(key);
+        if (pendingKeys.size() >= MAX_BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * 发送所有待发送的 key
+     */
+    public void flush() {
+        if (pendingKeys.isEmpty()) {
+            return;
+        }
+        List<String> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        Iterator<String> iterator = pendingKeys.iterator();
+        while (iterator.hasNext()) {
+            batch.add(iterator.next());
+            iterator.remove();
+            if (batch.size() >= MAX_BATCH_SIZE) {
+                send(batch);
+                batch = new ArrayList<>(MAX_BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    private void send(List<String> keys) {
+        try {
+            String message = objectMapper.writeValueAsString(new InvalidationMessage(instanceId, keys));
+            clusterChannel.publish(INVALIDATE_CHANNEL, message);
+        } catch (JsonProcessingException e) {
+            log.error("本地缓存失效消息序列化失败", e);
+        }
+    }
+
+    private void onMessage(String message) {
+        try {
+            InvalidationMessage invalidation = objectMapper.readValue(message, InvalidationMessage.class);
+            // 自己发出的消息，本地缓存已经是最新值
+            if (instanceId.equals(invalidation.instanceId())) {
+                return;
+            }
+            // 先记录序号再剔除：剔除之前写入的旧值会被剔除，之后写入的旧值会被序号检查拒绝
+            invalidation.keys().forEach(this::markInvalidated);
+            localInvalidator.accept(invalidation.keys());
+        } catch (JsonProcessingException e) {
+            log.warn("本地缓存失效消息解析失败: {}", message, e);
+        }
+    }
+
+    /**
+     * 失效消息
+     * @param instanceId 发送方实例 ID
+     * @param keys       需要剔除的 key
+     */
+    record InvalidationMessage(String instanceId, List<String> keys) {}
+}
@@ -2,13 +2,25 @@ package org.xiaobai.prettylike.manager.cache;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.xiaobai.prettylike.common.constant.ThumbConstant;
+import org.xiaobai.prettylike.config.HotKeyProperties;
+import org.xiaobai.prettylike.config.LocalCacheProperties;
+import org.xiaobai.prettylike.manager.thumb.UserThumbStore;
 
+import java.time.Duration;
+import java.util.*;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -21,45 +33,150 @@ public class CacheManager {
     /**
      * 热键检测器
      */
-    private TopK hotKeyDetector;
+    private volatile TopK hotKeyDetector;
 
-    private Cache<String,Object> localCache;
+    private volatile Cache<String,Object> localCache;
+
+    /**
+     * 点赞记录本地缓存 (userId, blogId) -> thumbId
+     * 自适应容量时会整体替换，替换与剔除互斥，避免剔除落在旧缓存上
+     */
+    private volatile LongPairCache thumbCache;
+    private final Object thumbCacheLock = new Object();
+    private int thumbCacheSize;
+
+    /**
+     * Redis 中不存在点赞记录
+     */
+    public static final long NOT_FOUND = LongPairCache.MISSING;
+
+    /**
+     * 本地缓存维护线程空闲时的等待时间
+     */
+    private static final long MAINTAIN_IDLE_MILLIS = 100;
+
+    private Thread maintainer;
 
     @Resource
     private RedisTemplate<String,Object> redisTemplate;
 
+    @Resource
+    private HotKeyProperties hotKeyProperties;
+
+    @Resource
+    private LocalCacheProperties localCacheProperties;
+
+    @Resource
+    private ClusterChannel clusterChannel;
+
+    @Resource
+    private UserThumbStore userThumbStore;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private CacheEventReporter eventReporter;
+
+    @Resource
+    private HotKeyEventStream hotKeyEventStream;
+
+    private Timer localHitTimer;
+    private Timer redisFallthroughTimer;
+    private Counter promotedCounter;
+    private Counter expelledCounter;
+
+    /**
+     * 自适应容量上一次调整时的统计快照
+     */
+    private CacheStats lastLocalStats = CacheStats.empty();
+    private long lastThumbHits;
+    private long lastThumbMisses;
+    private long lastThumbEvictions;
+
+    /**
+     * 本地缓存失效广播
+     */
+    private CacheInvalidationBus invalidationBus;
+
     @Bean
     public TopK getHotKeyDetector() {
         // 检查 hotKeyDetector 是否已经初始化
         if (hotKeyDetector == null) {
-            hotKeyDetector = new HeavyKeeper(
-                    // 监控 Top 100 Key
-                    100,
-                    // 哈希表宽度
-                    100000,
-                    // 哈希表深度
-                    5,
-                    // 衰减系数
-                    0.92,
-                    // 最小出现 10 次才记录
-                    10
-            );
+            synchronized (this) {
+                if (hotKeyDetector == null) {
+                    hotKeyDetector = createHotKeyDetector();
+                }
+            }
         }
         return hotKeyDetector;
     }
 
+    private TopK createHotKeyDetector() {
+        HotKeyProperties p = hotKeyProperties;
+        if (p.getWindow().isEnabled()) {
+            // 每个时间片只记录一个衰减周期内的访问，宽度按时间片数量平分
+            int slotWidth = Math.max(1024, p.getWidth() / p.getWindow().getSlots());
+            return new WindowedTopK(p.getWindow().getSlots(), p.getWindow().getDemoteSlots(),
+                    p.getK(), slotWidth, p.getDepth(), p.getDecay(), p.getMinCount());
+        }
+        int shards = p.getShards() > 0 ? p.getShards() : Runtime.getRuntime().availableProcessors();
+        if (shards > 1) {
+            return new ShardedTopK(shards, p.getK(), p.getWidth(), p.getDepth(), p.getDecay(), p.getMinCount());
+        }
+        return new LockFreeHeavyKeeper(p.getK(), p.getWidth(), p.getDepth(), p.getDecay(), p.getMinCount());
+    }
+
+    /**
+     * 最近一段时间内的热key
+     * 只有滑动窗口检测器能按窗口查询，其他检测器返回当前 TopK
+     * @param window 窗口长度
+     */
+    public List<Item> hotKeys(Duration window) {
+        TopK detector = getHotKeyDetector();
+        if (detector instanceof WindowedTopK windowed) {
+            long slots = (window.toSeconds() + hotKeyProperties.getFadingIntervalSeconds() - 1)
+                    / hotKeyProperties.getFadingIntervalSeconds();
+            return windowed.list((int) Math.min(slots, windowed.slotCount()));
+        }
+        return detector.list();
+    }
+
     /**
      * 获取本地缓存
      * @return 本地缓存
      */
     public Cache<String,Object> getLocalCache(){
-        if(localCache != null){
-            return localCache;
+        if(localCache == null){
+            synchronized (this) {
+                if (localCache == null) {
+                    localCache = Caffeine.newBuilder()
+                            .maximumSize(localCacheProperties.getMaximumSize())
+                            // 其他实例的修改会通过失效广播剔除本地缓存，过期时间只是兜底
+                            .expireAfterWrite(localCacheProperties.getExpireAfterWrite())
+                            .recordStats()
+                            .build();
+                }
+            }
+        }
+        return localCache;
+    }
+
+    /**
+     * 获取点赞记录本地缓存
+     * @return 点赞记录本地缓存
+     */
+    public LongPairCache getThumbCache() {
+        if (thumbCache == null) {
+            synchronized (thumbCacheLock) {
+                if (thumbCache == null) {
+                    thumbCacheSize = localCacheProperties.getMaximumSize();
+                    thumbCache = new LongPairCache(thumbCacheSize,
+                            localCacheProperties.getExpireAfterWrite().toNanos(), TimeUnit.NANOSECONDS);
+                }
+            }
         }
-        return localCache = Caffeine.newBuilder()
-                .maximumSize(1000)
-                .expireAfterWrite(5, TimeUnit.MINUTES)
-                .build();
+        return thumbCache;
     }
 
     // 辅助方法：构造复合 key
@@ -72,49 +189,461 @@ public class CacheManager {
         String compositeKey = buildCacheKey(hashKey, key);
 
         // 1.先查本地缓存
-        Object value = localCache.getIfPresent(compositeKey);
+        long start = System.nanoTime();
+        Object value = getLocalCache().getIfPresent(compositeKey);
         if (value != null) {
-            log.info("本地缓存获取到数据 {} = {}",compositeKey,value);
             // 记录访问次数（每次访问计数 + 1）
-            hotKeyDetector.add(compositeKey, 1);
+            getHotKeyDetector().add(compositeKey, 1);
+            localHitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            record(CacheEventReporter.CacheEvent.LOCAL_HIT, compositeKey, value);
             return value;
         }
 
         // 2.本地缓存未命中，查询 Redis
+        long stamp = invalidationBus.stamp();
         Object redisValue = redisTemplate.opsForHash().get(hashKey, key);
+        redisFallthroughTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         if(redisValue == null){
+            record(CacheEventReporter.CacheEvent.REDIS_MISS, compositeKey, null);
             return null;
         }
+        record(CacheEventReporter.CacheEvent.REDIS_HIT, compositeKey, redisValue);
 
         // 3.记录访问（计数 + 1）
-        AddResult addResult = hotKeyDetector.add(compositeKey, 1);
+        AddResult addResult = getHotKeyDetector().add(compositeKey, 1);
 
         // 4.如果是热 key 且不在本地缓存，则缓存数据
         if (addResult.isHotKey()) {
-            localCache.put(compositeKey, redisValue);
-            log.info("热 key 缓存到本地 {} = {}",compositeKey,redisValue);
+            putLocal(compositeKey, redisValue, stamp);
+            record(CacheEventReporter.CacheEvent.PROMOTED, compositeKey, redisValue);
         }
 
         return redisValue;
     }
 
+    /**
+     * 查询用户对博客的点赞记录
+     * 本地缓存命中时不构造字符串 key，也不装箱
+     * @return thumbId，Redis 中不存在时返回 {@link #NOT_FOUND}
+     */
+    public long getThumb(long userId, long blogId) {
+        // 1.先查本地缓存
+        long start = System.nanoTime();
+        long thumbId = getThumbCache().get(userId, blogId);
+        if (thumbId != LongPairCache.MISSING) {
+            getHotKeyDetector().add(userId, blogId, 1, CacheManager::thumbCacheKey);
+            localHitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            recordThumb(CacheEventReporter.CacheEvent.LOCAL_HIT, userId, blogId, thumbId);
+            return thumbId;
+        }
+
+        // 2.本地缓存未命中，查询 Redis 中的用户点赞分桶
+        long stamp = invalidationBus.stamp();
+        Long redisValue = userThumbStore.get(userId, blogId);
+        redisFallthroughTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (redisValue == null) {
+            recordThumb(CacheEventReporter.CacheEvent.REDIS_MISS, userId, blogId, NOT_FOUND);
+            return NOT_FOUND;
+        }
+        thumbId = redisValue;
+        recordThumb(CacheEventReporter.CacheEvent.REDIS_HIT, userId, blogId, thumbId);
+
+        // 3.记录访问，热 key 缓存到本地
+        if (getHotKeyDetector().add(userId, blogId, 1, CacheManager::thumbCacheKey)) {
+            putThumbLocal(userId, blogId, thumbId, stamp);
+            recordThumb(CacheEventReporter.CacheEvent.PROMOTED, userId, blogId, thumbId);
+        }
+        return thumbId;
+    }
+
+    private void record(CacheEventReporter.CacheEvent event, String compositeKey, Object value) {
+        eventReporter.record(event);
+        if (eventReporter.isTracing()) {
+            eventReporter.trace(compositeKey, event, value);
+        }
+    }
+
+    /**
+     * 没有跟踪任何 key 时不构造字符串 key
+     */
+    private void recordThumb(CacheEventReporter.CacheEvent event, long userId, long blogId, long thumbId) {
+        eventReporter.record(event);
+        if (eventReporter.isTracing()) {
+            eventReporter.trace(thumbCacheKey(userId, blogId), event, thumbId);
+        }
+    }
+
+    public void putThumbIfPresent(long userId, long blogId, long thumbId) {
+        // 通知其他实例剔除旧值，先于本地更新，避免并发读取把旧值写回本地缓存
+        invalidationBus.invalidate(thumbCacheKey(userId, blogId));
+        synchronized (thumbCacheLock) {
+            getThumbCache().replace(userId, blogId, thumbId);
+        }
+    }
+
+    /**
+     * 点赞记录在 TopK 和失效广播中使用的复合 key，与 {@link #get(String, String)} 的格式一致
+     */
+    static String thumbCacheKey(long userId, long blogId) {
+        return ThumbConstant.USER_THUMB_KEY_PREFIX + userId + ":" + blogId;
+    }
+
+    /**
+     * 对外展示的 key：点赞记录的 key 隐去 userId，避免监控数据暴露谁点赞了哪篇博客
+     */
+    static String maskKey(String compositeKey) {
+        long[] thumbKey = parseThumbCacheKey(compositeKey);
+        if (thumbKey == null) {
+            return compositeKey;
+        }
+        return ThumbConstant.USER_THUMB_KEY_PREFIX + "*:" + thumbKey[1];
+    }
+
+    /**
+     * 解析点赞记录的复合 key
+     * @return [userId, blogId]，不是点赞记录的 key 时返回 null
+     */
+    private static long[] parseThumbCacheKey(String compositeKey) {
+        if (!compositeKey.startsWith(ThumbConstant.USER_THUMB_KEY_PREFIX)) {
+            return null;
+        }
+        int start = ThumbConstant.USER_THUMB_KEY_PREFIX.length();
+        int separator = compositeKey.indexOf(':', start);
+        if (separator < 0) {
+            return null;
+        }
+        try {
+            return new long[]{
+                    Long.parseLong(compositeKey, start, separator, 10),
+                    Long.parseLong(compositeKey, separator + 1, compositeKey.length(), 10)
+            };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 剔除本地缓存，点赞记录的 key 从点赞记录缓存中剔除
+     */
+    public void invalidateLocal(Collection<String> compositeKeys) {
+        for (String compositeKey : compositeKeys) {
+            long[] thumbKey = parseThumbCacheKey(compositeKey);
+            if (thumbKey != null) {
+                synchronized (thumbCacheLock) {
+                    getThumbCache().remove(thumbKey[0], thumbKey[1]);
+                }
+            } else {
+                getLocalCache().invalidate(compositeKey);
+            }
+        }
+    }
+
     public void putIfPresent(String hashKey,String key,Object value){
         // 构造唯一的 composite key
         String compositeKey = buildCacheKey(hashKey, key);
+        // 通知其他实例剔除旧值，先于本地更新，避免并发读取把旧值写回本地缓存
+        invalidationBus.invalidate(compositeKey);
         // 放入本地缓存
-        Object obj = localCache.getIfPresent(compositeKey);
-        if(obj == null){
+        Object obj = getLocalCache().getIfPresent(compositeKey);
+        if(obj != null){
+            getLocalCache().put(compositeKey, value);
+        }
+    }
+
+    /**
+     * 预热本地缓存
+     * 从 Redis 批量加载尚未在本地缓存中的 key，同一个 hash 只查询一次；点赞记录按用户从点赞分桶中查询
+     * @param compositeKeys 复合 key 列表（hashKey:key）
+     * @return 实际加载到本地缓存的数量
+     */
+    public int preload(Collection<String> compositeKeys) {
+        Map<String, List<String>> fieldsByHashKey = new HashMap<>();
+        Map<Long, List<Long>> blogIdsByUser = new HashMap<>();
+        for (String compositeKey : compositeKeys) {
+            int separator = compositeKey.lastIndexOf(':');
+            if (separator <= 0 || isLocal(compositeKey)) {
+                continue;
+            }
+            long[] thumbKey = parseThumbCacheKey(compositeKey);
+            if (thumbKey != null) {
+                blogIdsByUser.computeIfAbsent(thumbKey[0], k -> new ArrayList<>()).add(thumbKey[1]);
+                continue;
+            }
+            fieldsByHashKey.computeIfAbsent(compositeKey.substring(0, separator), k -> new ArrayList<>())
+                    .add(compositeKey.substring(separator + 1));
+        }
+
+        int loaded = 0;
+        long stamp = invalidationBus.stamp();
+        for (Map.Entry<Long, List<Long>> entry : blogIdsByUser.entrySet()) {
+            long userId = entry.getKey();
+            List<Long> blogIds = entry.getValue();
+            List<Long> values = userThumbStore.multiGet(userId, blogIds);
+            for (int i = 0; i < blogIds.size(); i++) {
+                Long thumbId = values.get(i);
+                if (thumbId != null) {
+                    putThumbLocal(userId, blogIds.get(i), thumbId, stamp);
+                    loaded++;
+                }
+            }
+        }
+        for (Map.Entry<String, List<String>> entry : fieldsByHashKey.entrySet()) {
+            String hashKey = entry.getKey();
+            List<String> fields = entry.getValue();
+            List<Object> values = redisTemplate.opsForHash().multiGet(hashKey, new ArrayList<>(fields));
+            for (int i = 0; i < fields.size(); i++) {
+                Object value = values.get(i);
+                if (value != null) {
+                    putLocal(buildCacheKey(hashKey, fields.get(i)), value, stamp);
+                    loaded++;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * key 是否已在本地缓存中
+     * @param compositeKey 复合 key（hashKey:key）
+     */
+    public boolean isLocal(String compositeKey) {
+        long[] thumbKey = parseThumbCacheKey(compositeKey);
+        if (thumbKey != null) {
+            return getThumbCache().contains(thumbKey[0], thumbKey[1]);
+        }
+        return getLocalCache().getIfPresent(compositeKey) != null;
+    }
+
+    /**
+     * 写入从 Redis 读取的值，读取之后 key 被失效过时剔除刚写入的值
+     * @param stamp 读取 Redis 之前的失效序号
+     */
+    private void putLocal(String compositeKey, Object value, long stamp) {
+        long[] thumbKey = parseThumbCacheKey(compositeKey);
+        if (thumbKey != null && value instanceof Number number) {
+            putThumbLocal(thumbKey[0], thumbKey[1], number.longValue(), stamp);
             return;
         }
-        localCache.put(compositeKey, value);
+        getLocalCache().put(compositeKey, value);
+        if (invalidationBus.invalidatedSince(compositeKey, stamp)) {
+            getLocalCache().invalidate(compositeKey);
+        }
+    }
+
+    /**
+     * 与容量调整、剔除持有同一把锁，避免写入落在被替换掉的旧缓存上
+     */
+    private void putThumbLocal(long userId, long blogId, long thumbId, long stamp) {
+        synchronized (thumbCacheLock) {
+            getThumbCache().put(userId, blogId, thumbId);
+            if (invalidationBus.invalidatedSince(thumbCacheKey(userId, blogId), stamp)) {
+                getThumbCache().remove(userId, blogId);
+            }
+        }
+    }
+
+    /**
+     * 启动本地缓存维护线程和失效广播
+     */
+    @PostConstruct
+    public void startMaintainer() {
+        bindMetrics();
+        invalidationBus = new CacheInvalidationBus(clusterChannel, this::invalidateLocal);
+        invalidationBus.start();
+        maintainer = Thread.ofVirtual().name("cache-maintainer").start(this::maintain);
+    }
+
+    /**
+     * 注册本地缓存和热key 检测的指标
+     */
+    private void bindMetrics() {
+        CaffeineCacheMetrics.monitor(meterRegistry, getLocalCache(), "local");
+
+        // 点赞记录缓存与 Caffeine 指标使用相同的名称，通过 cache 标签区分；替换缓存时计数会延续
+        FunctionCounter.builder("cache.gets", this, m -> m.getThumbCache().hitCount())
+                .tags("cache", "thumb", "result", "hit")
+                .description("The number of times cache lookup methods have returned a cached value.")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", this, m -> m.getThumbCache().missCount())
+                .tags("cache", "thumb", "result", "miss")
+                .description("The number of times cache lookup methods have returned an uncached (newly loaded) value, or null")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", this, m -> m.getThumbCache().evictionCount())
+                .tags("cache", "thumb")
+                .description("The number of times the cache was evicted.")
+                .register(meterRegistry);
+        Gauge.builder("cache.capacity", this, m -> m.getThumbCache().capacity())
+                .tags("cache", "thumb")
+                .description("Thumb cache slot count")
+                .register(meterRegistry);
+        Gauge.builder("cache.capacity", this, m -> m.getLocalCache().policy().eviction()
+                        .map(eviction -> (double) eviction.getMaximum()).orElse(Double.NaN))
+                .tags("cache", "local")
+                .description("Local cache maximum size")
+                .register(meterRegistry);
+
+        localHitTimer = Timer.builder("cache.lookup")
+                .tag("source", "local")
+                .publishPercentileHistogram()
+                .description("Lookup latency served by the local cache")
+                .register(meterRegistry);
+        redisFallthroughTimer = Timer.builder("cache.lookup")
+                .tag("source", "redis")
+                .publishPercentileHistogram()
+                .description("Lookup latency falling through to Redis")
+                .register(meterRegistry);
+
+        promotedCounter = Counter.builder("hotkey.promoted")
+                .description("Keys entering the hot-key TopK")
+                .register(meterRegistry);
+        expelledCounter = Counter.builder("hotkey.expelled")
+                .description("Keys expelled from the hot-key TopK")
+                .register(meterRegistry);
+        FunctionCounter.builder("hotkey.events.dropped", this, m -> m.getHotKeyDetector().dropped())
+                .description("Promoted/expelled events dropped because the queue was full")
+                .register(meterRegistry);
+        Gauge.builder("hotkey.sketch.total", this, m -> m.getHotKeyDetector().total())
+                .description("Total (decayed) count recorded by the hot-key sketch")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stopMaintainer() {
+        if (maintainer != null) {
+            maintainer.interrupt();
+        }
+        invalidationBus.stop();
+    }
+
+    /**
+     * 本地缓存维护
+     * 1.消费被挤出 TopK 的 key，立即从本地缓存中剔除，同时避免挤出队列被占满后丢弃新的元素
+     * 2.消费新进入 TopK 的 key，提前从 Redis 加载到本地缓存，避免热 key 的头几次访问都打到 Redis
+     * 3.队列曾丢弃事件时按当前 TopK 重新对齐一次，多次丢弃合并为一次对齐
+     */
+    private void maintain() {
+        List<Item> batch = new ArrayList<>();
+        long dropped = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                TopK detector = getHotKeyDetector();
+
+                long currentDropped = detector.dropped();
+                if (currentDropped != dropped) {
+                    log.warn("热key 事件队列已满，丢弃 {} 个事件，按当前 TopK 重新对齐本地缓存", currentDropped - dropped);
+                    dropped = currentDropped;
+                    resync(detector);
+                }
+
+                detector.expelled().drainTo(batch);
+                if (!batch.isEmpty()) {
+                    invalidateLocal(batch.stream().map(Item::key).toList());
+                    hotKeyEventStream.publish("expelled", batch);
+                }
+                int expelled = batch.size();
+                expelledCounter.increment(expelled);
+                batch.clear();
+
+                detector.promoted().drainTo(batch);
+                if (!batch.isEmpty()) {
+                    preload(batch.stream().map(Item::key).toList());
+                    hotKeyEventStream.publish("promoted", batch);
+                }
+                int promoted = batch.size();
+                promotedCounter.increment(promoted);
+                batch.clear();
+
+                if (expelled == 0 && promoted == 0) {
+                    TimeUnit.MILLISECONDS.sleep(MAINTAIN_IDLE_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                batch.clear();
+                log.error("本地缓存维护失败", e);
+            }
+        }
+    }
+
+    /**
+     * 丢弃的晋升事件：预热当前 TopK 中尚未在本地的 key；
+     * 丢弃的挤出事件：剔除通用本地缓存中已不在 TopK 中的 key。
+     * 点赞记录缓存无法遍历，其中的冷 key 由失效广播保证正确，按过期时间淘汰
+     */
+    private void resync(TopK detector) {
+        Set<String> hotKeys = new HashSet<>();
+        for (Item item : detector.list()) {
+            hotKeys.add(item.key());
+        }
+        preload(hotKeys);
+        getLocalCache().asMap().keySet().removeIf(key -> !hotKeys.contains(key));
     }
 
     /**
      * 定时清理过期的热键
-     * 每隔 20 秒清理一次过期的热键，衰减系数为 0.92，衰减时间为 5 分钟
+     * 默认每隔 20 秒衰减一次；滑动窗口模式下为轮转到下一个时间片
      */
-    @Scheduled(fixedRate = 20,timeUnit = TimeUnit.SECONDS)
+    @Scheduled(fixedRateString = "${cache.hot-key.fading-interval-seconds:20}", timeUnit = TimeUnit.SECONDS)
     public void cleanHotKeys(){
-        hotKeyDetector.fading();
+        getHotKeyDetector().fading();
+    }
+
+    /**
+     * 自适应调整本地缓存容量
+     * 1.堆内存空闲比例低于阈值时容量减半
+     * 2.命中率低于目标且发生了淘汰时容量翻倍
+     */
+    @Scheduled(fixedRate = 30, timeUnit = TimeUnit.SECONDS)
+    public void adjustLocalCacheSize() {
+        LocalCacheProperties.Adaptive adaptive = localCacheProperties.getAdaptive();
+        if (!adaptive.isEnabled()) {
+            return;
+        }
+        Runtime runtime = Runtime.getRuntime();
+        double heapFreeRatio = (double) (runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory()))
+                / runtime.maxMemory();
+
+        // 通用本地缓存直接调整 Caffeine 的最大容量
+        CacheStats stats = getLocalCache().stats();
+        CacheStats delta = stats.minus(lastLocalStats);
+        lastLocalStats = stats;
+        getLocalCache().policy().eviction().ifPresent(eviction -> {
+            long next = nextSize(eviction.getMaximum(), delta.requestCount(), delta.hitRate(),
+                    delta.evictionCount() > 0, heapFreeRatio, adaptive);
+            if (next != eviction.getMaximum()) {
+                log.info("本地缓存容量调整 {} -> {}，命中率 {}", eviction.getMaximum(), next, delta.hitRate());
+                eviction.setMaximum(next);
+            }
+        });
+
+        // 点赞记录缓存容量固定，按新容量重建并复制现有条目
+        LongPairCache cache = getThumbCache();
+        long hits = cache.hitCount() - lastThumbHits;
+        long misses = cache.missCount() - lastThumbMisses;
+        long evictions = cache.evictionCount() - lastThumbEvictions;
+        lastThumbHits = cache.hitCount();
+        lastThumbMisses = cache.missCount();
+        lastThumbEvictions = cache.evictionCount();
+        long requests = hits + misses;
+        int next = (int) nextSize(thumbCacheSize, requests, requests == 0 ? 1.0 : (double) hits / requests,
+                evictions > 0, heapFreeRatio, adaptive);
+        if (next != thumbCacheSize) {
+            log.info("点赞记录缓存容量调整 {} -> {}", thumbCacheSize, next);
+            synchronized (thumbCacheLock) {
+                thumbCache = thumbCache.resized(next);
+                thumbCacheSize = next;
+            }
+        }
+    }
+
+    private static long nextSize(long current, long requests, double hitRatio, boolean evicting,
+                                 double heapFreeRatio, LocalCacheProperties.Adaptive adaptive) {
+        if (heapFreeRatio < adaptive.getMinHeapFreeRatio()) {
+            return Math.max(adaptive.getMinSize(), current / 2);
+        }
+        if (requests > 0 && hitRatio < adaptive.getTargetHitRatio() && evicting) {
+            return Math.min(adaptive.getMaxSize(), current * 2);
+        }
+        return current;
     }
 }
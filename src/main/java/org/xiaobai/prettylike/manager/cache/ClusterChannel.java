@@ -0,0 +1,24 @@
+package org.xiaobai.prettylike.manager.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * 集群广播通道
+ * 用于在多个应用实例之间广播本地缓存相关的消息
+ */
+public interface ClusterChannel {
+
+    /**
+     * 向频道发布消息
+     * @param channel 频道
+     * @param message 消息内容
+     */
+    void publish(String channel, String message);
+
+    /**
+     * 订阅频道，自己发布的消息也会收到
+     * @param channel  频道
+     * @param listener 消息监听器
+     */
+    void subscribe(String channel, Consumer<String> listener);
+}
@@ -1,17 +1,18 @@
 package org.xiaobai.prettylike.manager.cache;
 
-import cn.hutool.core.util.HashUtil;
 import lombok.Data;
 
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 热key 检测器
  */
 public class HeavyKeeper implements TopK{
     private static final int LOOKUP_TABLE_SIZE = 256;// 初始化查找表的大小
+    private static final int SATURATION_SAMPLES = 4096;// 计算饱和度时最多抽样的桶数
     private final int k;// 前 K 个热key
 
     /**
@@ -22,10 +23,10 @@ public class HeavyKeeper implements TopK{
 
     private final double[] lookupTable; // 用于快速计算衰减因子的查找表
     private final Bucket[][] buckets;// 用于存储桶的二维数组(哈希表)
-    private final PriorityQueue<Node> minHeap;// 按照 Node 的count字段升序的最小堆
-    private final BlockingQueue<Item> expelledQueue; // 用于存储被挤出的元素
+    private final TopKHeap topKHeap;// 带索引的 TopK 最小堆
     private final Random random;
-    private long total;// 记录的总的计数
+    private final AtomicLong total = new AtomicLong();// 记录的总的计数
+    private final AtomicInteger epoch = new AtomicInteger();// 当前纪元，每次 fading() 加一，桶被访问时按落后的纪元数减半
     private final int minCount;// 最小计数阀值
 
     public HeavyKeeper(int k,int width,int depth,double decay,int minCount){
@@ -46,27 +47,29 @@ public class HeavyKeeper implements TopK{
             }
         }
 
-        this.minHeap = new PriorityQueue<>(Comparator.comparingInt(n -> n.count));
-        this.expelledQueue = new LinkedBlockingQueue<>(k);
+        this.topKHeap = new TopKHeap(k);
         this.random = new Random();
-        this.total = 0;
     }
 
     @Override
     public AddResult add(String key, int increment) {
-        // 对key取hash值 得到指纹
-        byte[] keyBytes = key.getBytes();
-        int itemFingerprint = hash(keyBytes);
+        // 对key取一次 128 位hash 得到指纹，每一行的桶位置由 h1 + i * h2 推导
+        long[] hash = KeyHasher.hash128(key);
+        long h1 = hash[0];
+        long h2 = hash[1];
+        int itemFingerprint = KeyHasher.fingerprint(h1, h2);
+        int currentEpoch = epoch.get();
         int maxCount = 0;
 
         // 遍历每个桶，更新桶的计数
         for(int i = 0; i < depth; i++){
             // 获取到桶的位置
-            int bucketNumber = Math.abs(hash(keyBytes)) % width;
+            int bucketNumber = KeyHasher.index(h1, h2, i, width);
             Bucket bucket = buckets[i][bucketNumber];
 
             // 加锁 保证线程安全
             synchronized (bucket) {
+                bucket.catchUp(currentEpoch);
                 // 1.若桶的计数为 0，将当前键的指纹存入桶，并将计数设为 increment。
                 // 2.若桶的指纹与当前键的指纹相同，将桶的计数加上 increment。
                 // 3.若桶的指纹与当前键的指纹不同，尝试对桶的计数进行衰减操作，衰减概率由 lookupTable 决定，若计数减为0，则将当前键存入该桶
@@ -96,87 +99,82 @@ public class HeavyKeeper implements TopK{
             }
         }
 
-        total += increment;
+        total.addAndGet(increment);
 
         if(maxCount < minCount){
             return new AddResult(null,false,null);
         }
 
-        // 更新最小堆
-        synchronized (minHeap) {
-            // 判断是否是热key
-            boolean isHot = false;
-            String expelled = null;
-
-            Optional<Node> existing = minHeap.stream()
-                    .filter(n -> n.key.equals(key))
-                    .findFirst();
-
-            if (existing.isPresent()) {
-                minHeap.remove(existing.get());
-                minHeap.add(new Node(key, maxCount));
-                isHot = true;
-            } else {
-                if (minHeap.size() < k || maxCount >= Objects.requireNonNull(minHeap.peek()).count) {
-                    Node newNode = new Node(key, maxCount);
-                    if (minHeap.size() >= k) {
-                        expelled = minHeap.poll().key;
-                        expelledQueue.offer(new Item(expelled, maxCount));
-                    }
-                    minHeap.add(newNode);
-                    isHot = true;
-                }
-            }
+        // 更新 TopK
+        return topKHeap.offer(key, maxCount);
+    }
 
-            return new AddResult(expelled, isHot, key);
-        }
+    /**
+     * 加锁实现不追求零分配，直接按字符串 key 记录
+     */
+    @Override
+    public boolean add(long first, long second, int increment, PairKeyFormatter formatter) {
+        return add(formatter.format(first, second), increment).isHotKey();
     }
 
     @Override
     public List<Item> list() {
-        synchronized (minHeap){
-            List<Item> result = new ArrayList<>(minHeap.size());
-            for(Node node : minHeap){
-                result.add(new Item(node.key,node.count));
-            }
-            result.sort(Comparator.comparingInt(Item::count).reversed());
-            return result;
-        }
+        return topKHeap.list();
     }
 
     @Override
     public BlockingQueue<Item> expelled() {
-        return expelledQueue;
+        return topKHeap.expelled();
+    }
+
+    @Override
+    public BlockingQueue<Item> promoted() {
+        return topKHeap.promoted();
+    }
+
+    @Override
+    public long dropped() {
+        return topKHeap.dropped();
     }
 
     /**
      * 对所有桶的计数进行减半操作，
+     * 只推进纪元，桶在下一次被访问时才减半，不再逐个加锁遍历
      */
     @Override
     public void fading() {
-        for(Bucket[] row : buckets){
-            for(Bucket bucket : row){
-                synchronized (bucket){
-                    bucket.count = bucket.count >> 1;
-                }
-            }
-        }
+        epoch.incrementAndGet();
 
-        synchronized (minHeap){
-            PriorityQueue<Node> newHeap = new PriorityQueue<>(Comparator.comparingInt(n -> n.count));
-            for(Node node : minHeap){
-                newHeap.add(new Node(node.key,node.count >> 1));
-            }
-            minHeap.clear();
-            minHeap.addAll(newHeap);
-        }
+        topKHeap.fading();
 
-        total = total >> 1;
+        total.updateAndGet(t -> t >> 1);
     }
 
     @Override
     public long total() {
-        return total;
+        return total.get();
+    }
+
+    /**
+     * 不加锁读取，结果是近似值
+     */
+    @Override
+    public double saturation() {
+        // 等间隔抽样，监控轮询不会每次扫描所有桶
+        int currentEpoch = epoch.get();
+        long length = (long) depth * width;
+        long stride = Math.max(1, length / SATURATION_SAMPLES);
+        long sampled = 0;
+        long occupied = 0;
+        for (long i = 0; i < length; i += stride) {
+            Bucket bucket = buckets[(int) (i / width)][(int) (i % width)];
+            sampled++;
+            int behind = currentEpoch - bucket.epoch;
+            if (behind < Integer.SIZE && (bucket.count >>> Math.max(behind, 0)) > 0) {
+                occupied++;
+            }
+        }
+        return (double) occupied / sampled;
     }
 
     private static class Bucket {
@@ -192,33 +190,22 @@ public class HeavyKeeper implements TopK{
          * 用于表示键的访问次数。
          */
         int count;
-    }
-
-    private static class Node {
-        final String key;
-        final int count;
+        /**
+         * 计数对应的纪元
+         */
+        int epoch;
 
-        Node(String key, int count) {
-            this.key = key;
-            this.count = count;
+        /**
+         * 按落后的纪元数把计数减半，调用方需持有桶的锁
+         */
+        void catchUp(int currentEpoch) {
+            int behind = currentEpoch - epoch;
+            if (behind > 0) {
+                count = behind >= Integer.SIZE ? 0 : count >>> behind;
+                epoch = currentEpoch;
+            }
         }
     }
-
-    private static int hash(byte[] data) {
-        return HashUtil.murmur32(data);
-    }
-
-    public static void main(String[] args) {
-        String input = "test";
-        byte[] data = input.getBytes();
-
-        int hash1 = HashUtil.murmur32(data);
-        int hash2 = HashUtil.murmur32(data);
-
-        System.out.println("第一次哈希值: " + hash1);
-        System.out.println("第二次哈希值: " + hash2);
-        System.out.println("两次哈希值是否相同: " + (hash1 == hash2));
-    }
 }
 
 // 新增返回结果类
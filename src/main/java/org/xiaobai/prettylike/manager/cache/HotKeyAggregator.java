@@ -0,0 +1,148 @@
+package org.xiaobai.prettylike.manager.cache;
+
+import cn.hutool.core.util.IdUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.xiaobai.prettylike.config.HotKeyProperties;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 集群热key 聚合
+ * 单个实例上的 key 可能因为流量被分散到多个实例而达不到热key 阈值，
+ * 每个实例定期把本地 TopK 摘要广播出去，同时收集所有实例的摘要合并出全局 TopK，
+ * 再用全局热key 预热本地缓存
+ * 预热的 key 不一定在本地 TopK 中，不会被本地检测器剔除，离开全局 TopK 时由本类从本地缓存剔除
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "cache.hot-key.cluster", name = "enabled", havingValue = "true")
+public class HotKeyAggregator {
+
+    /**
+     * 热key 摘要广播频道
+     */
+    static final String DIGEST_CHANNEL = "cache:hot-key:digest";
+
+    /**
+     * 摘要有效期，超过 3 个广播周期没有更新的实例视为已下线
+     */
+    private static final long DIGEST_TTL_MILLIS = TimeUnit.SECONDS.toMillis(15);
+
+    private final TopK hotKeyDetector;
+
+    private final ClusterChannel clusterChannel;
+
+    private final CacheManager cacheManager;
+
+    private final HotKeyProperties hotKeyProperties;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String instanceId = IdUtil.fastSimpleUUID();
+
+    /**
+     * 每个实例最新的摘要
+     */
+    private final Map<String, HotKeyDigest> digests = new ConcurrentHashMap<>();
+
+    private volatile List<Item> globalHotKeys = List.of();
+
+    /**
+     * 由全局热key 预热的 key，只在 aggregate() 中访问
+     */
+    private Set<String> preloadedKeys = Set.of();
+
+    @PostConstruct
+    public void init() {
+        clusterChannel.subscribe(DIGEST_CHANNEL, this::onDigest);
+    }
+
+    /**
+     * 定时广播本地 TopK 摘要
+     */
+    @Scheduled(fixedRate = 5, timeUnit = TimeUnit.SECONDS)
+    public void publish() {
+        List<Item> items = hotKeyDetector.list();
+        if (items.isEmpty()) {
+            return;
+        }
+        HotKeyDigest digest = new HotKeyDigest(instanceId, System.currentTimeMillis(), items);
+        try {
+            clusterChannel.publish(DIGEST_CHANNEL, objectMapper.writeValueAsString(digest));
+        } catch (JsonProcessingException e) {
+            log.error("热key 摘要序列化失败", e);
+        }
+    }
+
+    /**
+     * 定时合并所有实例的摘要，并预热本地缓存
+     */
+    @Scheduled(fixedRate = 5, initialDelay = 2, timeUnit = TimeUnit.SECONDS)
+    public void aggregate() {
+        long expireBefore = System.currentTimeMillis() - DIGEST_TTL_MILLIS;
+        digests.values().removeIf(digest -> digest.timestamp() < expireBefore);
+
+        // 同一个 key 在各实例上的计数求和
+        Map<String, Integer> merged = new HashMap<>();
+        for (HotKeyDigest digest : digests.values()) {
+            for (Item item : digest.items()) {
+                merged.merge(item.key(), item.count(), Integer::sum);
+            }
+        }
+
+        List<Item> result = merged.entrySet().stream()
+                .map(entry -> new Item(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingInt(Item::count).reversed())
+                .limit(hotKeyProperties.getCluster().getK())
+                .toList();
+        globalHotKeys = result;
+
+        Set<String> globalKeys = new HashSet<>();
+        result.forEach(item -> globalKeys.add(item.key()));
+        expelPreloaded(globalKeys);
+        if (!result.isEmpty()) {
+            cacheManager.preload(result.stream().map(Item::key).toList());
+        }
+        preloadedKeys = globalKeys;
+    }
+
+    /**
+     * 剔除离开全局 TopK 的预热 key，仍在本地 TopK 中的 key 交给本地检测器剔除
+     */
+    private void expelPreloaded(Set<String> globalKeys) {
+        Set<String> localKeys = new HashSet<>();
+        hotKeyDetector.list().forEach(item -> localKeys.add(item.key()));
+        List<String> expelled = preloadedKeys.stream()
+                .filter(key -> !globalKeys.contains(key) && !localKeys.contains(key))
+                .toList();
+        if (!expelled.isEmpty()) {
+            cacheManager.invalidateLocal(expelled);
+        }
+    }
+
+    /**
+     * 当前全局热key
+     */
+    public List<Item> globalHotKeys() {
+        return globalHotKeys;
+    }
+
+    private void onDigest(String message) {
+        try {
+            HotKeyDigest digest = objectMapper.readValue(message, HotKeyDigest.class);
+            digests.put(digest.instanceId(), digest);
+        } catch (JsonProcessingException e) {
+            log.warn("热key 摘要解析失败: {}", message, e);
+        }
+    }
+}
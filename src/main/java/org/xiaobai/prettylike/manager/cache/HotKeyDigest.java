@@ -0,0 +1,11 @@
+package org.xiaobai.prettylike.manager.cache;
+
+import java.util.List;
+
+/**
+ * 热key 摘要，每个实例定期广播自己的 TopK
+ * @param instanceId 实例 ID
+ * @param timestamp  生成时间（毫秒）
+ * @param items      本地 TopK
+ */
+public record HotKeyDigest(String instanceId, long timestamp, List<Item> items) {}
@@ -0,0 +1,44 @@
+package org.xiaobai.prettylike.manager.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 热key 只读监控端点 /actuator/hotkeys
+ * 返回当前节点的 TopK、草图饱和度和各热key 是否已在本地缓存中。
+ * TopK 列表本身就是无锁复制出来的快照，轮询不会与 add() 竞争；点赞记录的 key 隐去 userId
+ */
+@Component
+@Endpoint(id = "hotkeys")
+@RequiredArgsConstructor
+public class HotKeyEndpoint {
+
+    private final CacheManager cacheManager;
+
+    public record HotKeySnapshot(long timestamp, long total, double saturation, List<HotKey> items) {
+    }
+
+    public record HotKey(String key, int count, boolean local) {
+    }
+
+    /**
+     * @param windowSeconds 只在滑动窗口模式下生效，查询最近多少秒的热key
+     */
+    @ReadOperation
+    public HotKeySnapshot snapshot(@Nullable Integer windowSeconds) {
+        TopK detector = cacheManager.getHotKeyDetector();
+        List<Item> items = windowSeconds == null ?
+                detector.list() :
+                cacheManager.hotKeys(Duration.ofSeconds(windowSeconds));
+        List<HotKey> hotKeys = items.stream()
+                .map(item -> new HotKey(CacheManager.maskKey(item.key()), item.count(), cacheManager.isLocal(item.key())))
+                .toList();
+        return new HotKeySnapshot(System.currentTimeMillis(), detector.total(), detector.saturation(), hotKeys);
+    }
+}
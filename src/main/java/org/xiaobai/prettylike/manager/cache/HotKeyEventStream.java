@@ -0,0 +1,91 @@
+package org.xiaobai.prettylike.manager.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * 热key 晋升 / 挤出事件流
+ * 本地缓存维护线程只把事件放入有界队列（满了直接丢弃），由单独的线程推送给 SSE 订阅者，
+ * 订阅者网络慢不会拖慢本地缓存维护；事件中点赞记录的 key 隐去 userId
+ */
+@Slf4j
+@Component
+public class HotKeyEventStream {
+
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final long EMITTER_TIMEOUT_MILLIS = 30 * 60 * 1000L;
+
+    public record HotKeyEvent(String type, String key, int count, long timestamp) {
+    }
+
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<HotKeyEvent> events = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private Thread sender;
+
+    @PostConstruct
+    public void start() {
+        sender = Thread.ofVirtual().name("hot-key-event-stream").start(this::send);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sender != null) {
+            sender.interrupt();
+        }
+        emitters.forEach(SseEmitter::complete);
+    }
+
+    /**
+     * 订阅事件流
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MILLIS);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        emitters.add(emitter);
+        return emitter;
+    }
+
+    /**
+     * 发布事件，没有订阅者时直接忽略
+     * @param type promoted / expelled
+     */
+    public void publish(String type, List<Item> items) {
+        if (emitters.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Item item : items) {
+            events.offer(new HotKeyEvent(type, CacheManager.maskKey(item.key()), item.count(), now));
+        }
+    }
+
+    private void send() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                HotKeyEvent event = events.take();
+                for (SseEmitter emitter : emitters) {
+                    try {
+                        emitter.send(SseEmitter.event().name(event.type()).data(event));
+                    } catch (IOException | IllegalStateException e) {
+                        emitters.remove(emitter);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("热key 事件推送失败", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.xiaobai.prettylike.manager.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.web.annotation.RestControllerEndpoint;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 热key 晋升 / 挤出事件流 /actuator/hotkeystream
+ * 与 /actuator/hotkeys 一样由 management.endpoints.web.exposure 控制是否暴露，不对外提供业务接口
+ */
+@Component
+@RestControllerEndpoint(id = "hotkeystream")
+@RequiredArgsConstructor
+public class HotKeyStreamEndpoint {
+
+    private final HotKeyEventStream hotKeyEventStream;
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        return hotKeyEventStream.subscribe();
+    }
+}
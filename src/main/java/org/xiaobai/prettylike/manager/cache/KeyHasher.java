@@ -0,0 +1,143 @@
+package org.xiaobai.prettylike.manager.cache;
+
+/**
+ * 热key 检测使用的哈希工具
+ * 对每个 key 只计算一次 128 位 MurmurHash3（x64 变体），
+ * 再按 Kirsch–Mitzenmacher 的方式由 h1 + i * h2 推导出每一行独立的桶下标。
+ * 直接按 UTF-16 字符读取字符串，不会像 getBytes() 那样每次分配新数组
+ */
+final class KeyHasher {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    /**
+     * 每个线程复用的结果数组，[0] 为 h1，[1] 为 h2
+     */
+    private static final ThreadLocal<long[]> SCRATCH = ThreadLocal.withInitial(() -> new long[2]);
+
+    private KeyHasher() {
+    }
+
+    /**
+     * 计算 key 的 128 位哈希
+     * 返回的数组为当前线程复用的数组，在同一线程下一次调用前有效
+     * @param key key
+     * @return [h1, h2]
+     */
+    static long[] hash128(CharSequence key) {
+        long[] out = SCRATCH.get();
+        int length = key.length();
+        long h1 = 0;
+        long h2 = 0;
+
+        // 每 8 个字符（16 字节）为一个块
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            long k1 = chars(key, i);
+            long k2 = chars(key, i + 4);
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        // 尾部不足 8 个字符
+        long k1 = 0;
+        long k2 = 0;
+        for (int j = 0; i + j < length; j++) {
+            long c = key.charAt(i + j);
+            if (j < 4) {
+                k1 |= c << (16 * j);
+            } else {
+                k2 |= c << (16 * (j - 4));
+            }
+        }
+        h1 ^= mixK1(k1);
+        h2 ^= mixK2(k2);
+
+        finish(h1, h2, (long) length * 2, out);
+        return out;
+    }
+
+    /**
+     * 计算两个 long 组成的复合 key 的 128 位哈希，用法同 {@link #hash128(CharSequence)}
+     */
+    static long[] hash128(long first, long second) {
+        long[] out = SCRATCH.get();
+        long h1 = 0;
+        long h2 = 0;
+        h1 ^= mixK1(first);
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+        h2 ^= mixK2(second);
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+        finish(h1, h2, 16, out);
+        return out;
+    }
+
+    /**
+     * 第 row 行的桶下标
+     */
+    static int index(long h1, long h2, int row, int width) {
+        long combined = h1 + row * h2;
+        return (int) ((combined & Long.MAX_VALUE) % width);
+    }
+
+    /**
+     * key 的指纹
+     */
+    static int fingerprint(long h1, long h2) {
+        return (int) (h2 >>> 32);
+    }
+
+    private static long chars(CharSequence key, int offset) {
+        return (long) key.charAt(offset)
+                | (long) key.charAt(offset + 1) << 16
+                | (long) key.charAt(offset + 2) << 32
+                | (long) key.charAt(offset + 3) << 48;
+    }
+
+    private static void finish(long h1, long h2, long length, long[] out) {
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+        out[0] = h1;
+        out[1] = h2;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        return k1;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        return k2;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb93fe53d3b1aL;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,271 @@
+package org.xiaobai.prettylike.manager.cache;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁热key 检测器
+ * 与 {@link HeavyKeeper} 算法一致，区别在于桶的存储方式：
+ * 所有桶压缩在一个 long 数组中（24 位指纹 | 8 位纪元 | 32 位计数），通过 CAS 更新，
+ * 不再为每个桶创建对象，也不再对桶加锁。
+ * 衰减采用纪元方式：fading() 只把全局纪元加一，桶在下一次被访问时按落后的纪元数右移计数；
+ * 为避免 8 位纪元回绕，每次 fading() 顺带规整 1/128 的桶，保证任何桶落后的纪元数都小于 256
+ */
+public class LockFreeHeavyKeeper implements TopK {
+    private static final int LOOKUP_TABLE_SIZE = 256;// 初始化查找表的大小
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+    private static final int FINGERPRINT_MASK = 0xFFFFFF;
+    private static final int EPOCH_MASK = 0xFF;
+    private static final int SWEEP_PERIODS = 128;// 多少次 fading() 规整完一遍所有桶
+    private static final int SATURATION_SAMPLES = 4096;// 计算饱和度时最多抽样的桶数
+    private final int k;// 前 K 个热key
+
+    /**
+     * 用于定义桶的宽度和深度。
+     */
+    private final int width;
+    private final int depth;
+
+    private final double[] lookupTable; // 用于快速计算衰减因子的查找表
+    private final AtomicLongArray buckets;// 扁平化的桶数组，下标为 row * width + column
+    private final TopKHeap topKHeap;// 带索引的 TopK 最小堆
+    private final LongAdder total = new LongAdder();// 记录的总的计数，分散在多个单元上累加，避免所有 add() 竞争同一个变量
+    private final int minCount;// 最小计数阀值
+    private final AtomicInteger epoch = new AtomicInteger();// 当前纪元，每次 fading() 加一
+    private int sweepCursor;// 下一次规整的起始下标，只在 fading() 中访问
+
+    public LockFreeHeavyKeeper(int k, int width, int depth, double decay, int minCount) {
+        this.k = k;
+        this.width = width;
+        this.depth = depth;
+        this.minCount = minCount;
+
+        this.lookupTable = new double[LOOKUP_TABLE_SIZE];
+        for (int i = 0; i < LOOKUP_TABLE_SIZE; i++) {
+            lookupTable[i] = Math.pow(decay, i);
+        }
+
+        this.buckets = new AtomicLongArray(depth * width);
+        this.topKHeap = new TopKHeap(k);
+    }
+
+    @Override
+    public AddResult add(String key, int increment) {
+        // 对key取一次 128 位hash 得到指纹，每一行的桶位置由 h1 + i * h2 推导
+        long[] hash = KeyHasher.hash128(key);
+        int maxCount = updateRows(hash[0], hash[1], increment);
+
+        if (maxCount < minCount) {
+            return new AddResult(null, false, null);
+        }
+
+        // 更新 TopK
+        return topKHeap.offer(key, maxCount);
+    }
+
+    @Override
+    public boolean add(long first, long second, int increment, PairKeyFormatter formatter) {
+        long[] hash = KeyHasher.hash128(first, second);
+        int maxCount = updateRows(hash[0], hash[1], increment);
+
+        if (maxCount < minCount) {
+            return false;
+        }
+
+        return topKHeap.offer(first, second, maxCount, formatter);
+    }
+
+    /**
+     * 遍历每一行，通过 CAS 更新桶的计数，返回 key 在各行中的最大计数
+     */
+    private int updateRows(long h1, long h2, int increment) {
+        int itemFingerprint = KeyHasher.fingerprint(h1, h2) & FINGERPRINT_MASK;
+        int currentEpoch = epoch.get();
+        int maxCount = 0;
+        for (int i = 0; i < depth; i++) {
+            int index = i * width + KeyHasher.index(h1, h2, i, width);
+            maxCount = Math.max(maxCount, updateBucket(index, itemFingerprint, increment, currentEpoch));
+        }
+
+        total.add(increment);
+        return maxCount;
+    }
+
+    /**
+     * 更新单个桶，返回当前 key 在该桶中的计数（桶被其他 key 占据时返回 0）
+     * 1.若桶的计数为 0，将当前键的指纹存入桶，并将计数设为 increment。
+     * 2.若桶的指纹与当前键的指纹相同，将桶的计数加上 increment。
+     * 3.若桶的指纹与当前键的指纹不同，尝试对桶的计数进行衰减操作，衰减概率由 lookupTable 决定，若计数减为0，则将当前键存入该桶
+     * 桶的计数先按落后的纪元数减半，写回时纪元更新为当前纪元
+     */
+    private int updateBucket(int index, int itemFingerprint, int increment, int currentEpoch) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (true) {
+            long current = buckets.get(index);
+            int fingerprint = fingerprintOf(current);
+            int count = countAt(current, currentEpoch);
+
+            int newFingerprint = fingerprint;
+            int newCount;
+            int result = 0;
+            if (count == 0) {
+                newFingerprint = itemFingerprint;
+                newCount = increment;
+                result = newCount;
+            } else if (fingerprint == itemFingerprint) {
+                newCount = count + increment;
+                result = newCount;
+            } else {
+                newCount = count;
+                boolean decayed = false;
+                for (int j = 0; j < increment; j++) {
+                    double decay = newCount < LOOKUP_TABLE_SIZE ?
+                            lookupTable[newCount] :
+                            lookupTable[LOOKUP_TABLE_SIZE - 1];
+                    if (random.nextDouble() < decay) {
+                        decayed = true;
+                        newCount--;
+                        if (newCount == 0) {
+                            newFingerprint = itemFingerprint;
+                            newCount = 1;
+                            result = 1;
+                            break;
+                        }
+                    }
+                }
+                if (!decayed) {
+                    // 没有发生衰减，无需写回
+                    return 0;
+                }
+            }
+
+            if (buckets.compareAndSet(index, current, pack(newFingerprint, currentEpoch, newCount))) {
+                return result;
+            }
+        }
+    }
+
+    @Override
+    public List<Item> list() {
+        return topKHeap.list();
+    }
+
+    /**
+     * key 是否在 TopK 中，不更新计数
+     */
+    boolean contains(String key) {
+        return topKHeap.contains(key);
+    }
+
+    boolean contains(long first, long second) {
+        return topKHeap.contains(first, second);
+    }
+
+    @Override
+    public BlockingQueue<Item> expelled() {
+        return topKHeap.expelled();
+    }
+
+    @Override
+    public BlockingQueue<Item> promoted() {
+        return topKHeap.promoted();
+    }
+
+    @Override
+    public long dropped() {
+        return topKHeap.dropped();
+    }
+
+    long droppedPromoted() {
+        return topKHeap.droppedPromoted();
+    }
+
+    /**
+     * 清空所有桶、总计数和 TopK，复用已分配的数组，用于滑动窗口轮转时回收最旧的时间片
+     * 与并发的 add() 之间不加锁，清空期间写入的少量计数可能保留下来
+     */
+    void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        total.reset();
+        topKHeap.reset();
+    }
+
+    /**
+     * 所有计数减半：只推进纪元，桶和 TopK 的计数在下一次读取时才减半
+     * 同时规整一小段桶，避免长期未被访问的桶的纪元回绕
+     */
+    @Override
+    public void fading() {
+        int currentEpoch = epoch.incrementAndGet();
+        topKHeap.fading();
+        // LongAdder 不能原子地减半，减去当前总数的一半，期间并发累加的计数不参与本次减半
+        long currentTotal = total.sum();
+        total.add(-(currentTotal - (currentTotal >> 1)));
+
+        int length = buckets.length();
+        int chunk = (length + SWEEP_PERIODS - 1) / SWEEP_PERIODS;
+        int end = Math.min(length, sweepCursor + chunk);
+        for (int i = sweepCursor; i < end; i++) {
+            long current;
+            do {
+                current = buckets.get(i);
+                if (countOf(current) == 0 || epochOf(current) == (currentEpoch & EPOCH_MASK)) {
+                    break;
+                }
+            } while (!buckets.compareAndSet(i, current,
+                    pack(fingerprintOf(current), currentEpoch, countAt(current, currentEpoch))));
+        }
+        sweepCursor = end == length ? 0 : end;
+    }
+
+    @Override
+    public long total() {
+        return total.sum();
+    }
+
+    @Override
+    public double saturation() {
+        // 等间隔抽样，监控轮询不会每次扫描整个桶数组
+        int currentEpoch = epoch.get();
+        int stride = Math.max(1, buckets.length() / SATURATION_SAMPLES);
+        int sampled = 0;
+        int occupied = 0;
+        for (int i = 0; i < buckets.length(); i += stride) {
+            sampled++;
+            if (countAt(buckets.get(i), currentEpoch) > 0) {
+                occupied++;
+            }
+        }
+        return (double) occupied / sampled;
+    }
+
+    private static long pack(int fingerprint, int epoch, int count) {
+        return ((long) fingerprint << 40) | ((long) (epoch & EPOCH_MASK) << 32) | (count & COUNT_MASK);
+    }
+
+    private static int fingerprintOf(long bucket) {
+        return (int) (bucket >>> 40);
+    }
+
+    private static int epochOf(long bucket) {
+        return (int) (bucket >>> 32) & EPOCH_MASK;
+    }
+
+    /**
+     * 桶在当前纪元下的计数
+     */
+    private static int countAt(long bucket, int currentEpoch) {
+        int behind = (currentEpoch - epochOf(bucket)) & EPOCH_MASK;
+        return behind >= Integer.SIZE ? 0 : countOf(bucket) >>> behind;
+    }
+
+    private static int countOf(long bucket) {
+        return (int) bucket;
+    }
+}
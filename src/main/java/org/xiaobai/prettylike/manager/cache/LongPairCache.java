@@ -0,0 +1,275 @@
+package org.xiaobai.prettylike.manager.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 以两个 long 为 key、long 为 value 的本地缓存
+ * 专门用于 (userId, blogId) -> thumbId 这种访问模式：
+ * 1.key 和 value 都存放在原始类型数组中，查询时不需要拼接字符串 key，也不需要装箱
+ * 2.4 路组相联：每个 key 只可能落在一组的 4 个槽位中，组满时淘汰最早写入的槽位
+ * 3.按组分段加 StampedLock，读操作使用乐观读，命中路径不加锁、不分配内存
+ * 4.写入后超过过期时间的条目在读取时视为不存在
+ */
+public class LongPairCache {
+
+    /**
+     * 缓存中不存在时的返回值
+     */
+    public static final long MISSING = Long.MIN_VALUE;
+
+    private static final int WAYS = 4;
+    private static final int SEGMENTS = 64;
+
+    private final int setMask;
+    private final long expireNanos;
+
+    private final long[] firsts;
+    private final long[] seconds;
+    private final long[] values;
+    // 写入时间，0 表示空槽位
+    private final long[] writeTimes;
+    private final StampedLock[] locks;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize      最大容量，会向上取整为 2 的幂
+     * @param expireAfterWrite 写入后的过期时间
+     * @param unit             时间单位
+     */
+    public LongPairCache(int maximumSize, long expireAfterWrite, TimeUnit unit) {
+        int wanted = Math.max(SEGMENTS, (maximumSize + WAYS - 1) / WAYS);
+        int sets = Integer.highestOneBit(wanted - 1) << 1;
+        this.setMask = sets - 1;
+        this.expireNanos = unit.toNanos(expireAfterWrite);
+
+        int capacity = sets * WAYS;
+        this.firsts = new long[capacity];
+        this.seconds = new long[capacity];
+        this.values = new long[capacity];
+        this.writeTimes = new long[capacity];
+        this.locks = new StampedLock[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            locks[i] = new StampedLock();
+        }
+    }
+
+    /**
+     * 查询缓存
+     * @return 缓存的值，不存在或已过期时返回 {@link #MISSING}
+     */
+    public long get(long first, long second) {
+        int set = setOf(first, second);
+        StampedLock lock = locks[set & (SEGMENTS - 1)];
+
+        long stamp = lock.tryOptimisticRead();
+        long value = find(set, first, second);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = find(set, first, second);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        if (value == MISSING) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * 写入缓存
+     */
+    public void put(long first, long second, long value) {
+        put(first, second, value, now());
+    }
+
+    private void put(long first, long second, long value, long writeTime) {
+        int set = setOf(first, second);
+        StampedLock lock = locks[set & (SEGMENTS - 1)];
+        long stamp = lock.writeLock();
+        try {
+            long now = now();
+            int base = set * WAYS;
+            int victim = base;
+            boolean replacing = false;
+            for (int i = base; i < base + WAYS; i++) {
+                if (writeTimes[i] != 0 && firsts[i] == first && seconds[i] == second) {
+                    victim = i;
+                    replacing = true;
+                    break;
+                }
+                // 优先使用空槽位或已过期的槽位，否则淘汰最早写入的槽位
+                if (isVacant(i, now) || (!isVacant(victim, now) && writeTimes[i] < writeTimes[victim])) {
+                    victim = i;
+                }
+            }
+            if (!replacing && !isVacant(victim, now)) {
+                evictions.increment();
+            }
+            firsts[victim] = first;
+            seconds[victim] = second;
+            values[victim] = value;
+            writeTimes[victim] = writeTime;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 只有 key 已在缓存中时才更新
+     * @return 是否更新
+     */
+    public boolean replace(long first, long second, long value) {
+        int set = setOf(first, second);
+        StampedLock lock = locks[set & (SEGMENTS - 1)];
+        long stamp = lock.writeLock();
+        try {
+            int slot = slotOf(set, first, second, now());
+            if (slot < 0) {
+                return false;
+            }
+            values[slot] = value;
+            writeTimes[slot] = now();
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 剔除缓存
+     */
+    public void remove(long first, long second) {
+        int set = setOf(first, second);
+        StampedLock lock = locks[set & (SEGMENTS - 1)];
+        long stamp = lock.writeLock();
+        try {
+            int slot = slotOf(set, first, second, now());
+            if (slot >= 0) {
+                writeTimes[slot] = 0;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 是否存在未过期的 key
+     */
+    public boolean contains(long first, long second) {
+        int set = setOf(first, second);
+        StampedLock lock = locks[set & (SEGMENTS - 1)];
+        long stamp = lock.readLock();
+        try {
+            return slotOf(set, first, second, now()) >= 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 因组内槽位已满被淘汰的次数
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * 创建指定容量的新缓存，并复制当前未过期的条目（保留原写入时间）和统计数据
+     * 容量变小时，同一组中多出的条目按写入先后被淘汰
+     */
+    public LongPairCache resized(int maximumSize) {
+        LongPairCache target = new LongPairCache(maximumSize, expireNanos, TimeUnit.NANOSECONDS);
+        // 统计数据延续到新缓存，保证指标单调递增
+        target.hits.add(hits.sum());
+        target.misses.add(misses.sum());
+        target.evictions.add(evictions.sum());
+        for (int segment = 0; segment < SEGMENTS; segment++) {
+            StampedLock lock = locks[segment];
+            long stamp = lock.readLock();
+            try {
+                long now = now();
+                // 第 segment 段负责 set & (SEGMENTS - 1) == segment 的所有组
+                for (int set = segment; set <= setMask; set += SEGMENTS) {
+                    for (int i = set * WAYS; i < set * WAYS + WAYS; i++) {
+                        if (!isVacant(i, now)) {
+                            target.put(firsts[i], seconds[i], values[i], writeTimes[i]);
+                        }
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * 缓存容量（槽位总数）
+     */
+    public int capacity() {
+        return writeTimes.length;
+    }
+
+    private long find(int set, long first, long second) {
+        long now = now();
+        int base = set * WAYS;
+        for (int i = base; i < base + WAYS; i++) {
+            if (firsts[i] == first && seconds[i] == second) {
+                long writeTime = writeTimes[i];
+                long value = values[i];
+                if (writeTime != 0 && now - writeTime < expireNanos) {
+                    return value;
+                }
+            }
+        }
+        return MISSING;
+    }
+
+    private int slotOf(int set, long first, long second, long now) {
+        int base = set * WAYS;
+        for (int i = base; i < base + WAYS; i++) {
+            if (!isVacant(i, now) && firsts[i] == first && seconds[i] == second) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isVacant(int slot, long now) {
+        long writeTime = writeTimes[slot];
+        return writeTime == 0 || now - writeTime >= expireNanos;
+    }
+
+    private int setOf(long first, long second) {
+        long h = first * 0x9E3779B97F4A7C15L + second;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h & setMask;
+    }
+
+    /**
+     * 保证写入时间不为 0
+     */
+    private static long now() {
+        return System.nanoTime() | 1;
+    }
+}
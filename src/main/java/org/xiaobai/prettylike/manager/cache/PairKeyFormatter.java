@@ -0,0 +1,10 @@
+package org.xiaobai.prettylike.manager.cache;
+
+/**
+ * 把两个 long 组成的 key 转换为字符串 key
+ * 只在 key 需要进入 TopK 时才会调用，命中路径上不会产生字符串
+ */
+@FunctionalInterface
+public interface PairKeyFormatter {
+    String format(long first, long second);
+}
@@ -0,0 +1,36 @@
+package org.xiaobai.prettylike.manager.cache;
+
+import jakarta.annotation.Resource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * 基于 Redis Pub/Sub 的集群广播通道
+ */
+@Component
+public class RedisClusterChannel implements ClusterChannel {
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Override
+    public void publish(String channel, String message) {
+        stringRedisTemplate.convertAndSend(channel, message);
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<String> listener) {
+        redisMessageListenerContainer.addMessageListener(
+                (message, pattern) -> listener.accept(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(channel)
+        );
+    }
+}
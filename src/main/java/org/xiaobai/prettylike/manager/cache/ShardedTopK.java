@@ -0,0 +1,144 @@
+package org.xiaobai.prettylike.manager.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+
+/**
+ * 分片热key 检测器
+ * 按 key 的哈希把 key 分配到 N 个互相独立的 {@link LockFreeHeavyKeeper} 上，
+ * 不同分片之间的写入互不竞争；是否为热key 由 key 所属的分片判断。
+ * 每个分片各自保留 TopK，全局 TopK 一定是各分片 TopK 的并集的前 K 个，
+ * 因此只在调用 list() / expelled() 时才进行合并
+ */
+public class ShardedTopK implements TopK {
+
+    private final int k;
+    private final TopK[] shards;
+    private final BlockingQueue<Item> expelledQueue;
+    private final BlockingQueue<Item> promotedQueue;
+
+    /**
+     * @param shardCount 分片数量
+     * @param k          监控 Top K 个 key（每个分片都保留 K 个）
+     * @param width      哈希表总宽度，平均分配到各个分片
+     * @param depth      哈希表深度
+     * @param decay      衰减系数
+     * @param minCount   最小计数阀值
+     */
+    public ShardedTopK(int shardCount, int k, int width, int depth, double decay, int minCount) {
+        this.k = k;
+        this.shards = new TopK[shardCount];
+        int shardWidth = Math.max(1, width / shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new LockFreeHeavyKeeper(k, shardWidth, depth, decay, minCount);
+        }
+        this.expelledQueue = new LinkedBlockingQueue<>(k);
+        this.promotedQueue = new LinkedBlockingQueue<>(k);
+    }
+
+    @Override
+    public AddResult add(String key, int increment) {
+        return shardOf(key).add(key, increment);
+    }
+
+    @Override
+    public boolean add(long first, long second, int increment, PairKeyFormatter formatter) {
+        return shardOf(first, second).add(first, second, increment, formatter);
+    }
+
+    @Override
+    public List<Item> list() {
+        List<Item> merged = new ArrayList<>();
+        for (TopK shard : shards) {
+            merged.addAll(shard.list());
+        }
+        merged.sort(Comparator.comparingInt(Item::count).reversed());
+        return merged.size() > k ? new ArrayList<>(merged.subList(0, k)) : merged;
+    }
+
+    /**
+     * 把各分片被挤出的元素汇总到同一个队列中
+     */
+    @Override
+    public BlockingQueue<Item> expelled() {
+        return collect(expelledQueue, TopK::expelled);
+    }
+
+    /**
+     * 把各分片新进入 TopK 的元素汇总到同一个队列中
+     */
+    @Override
+    public BlockingQueue<Item> promoted() {
+        return collect(promotedQueue, TopK::promoted);
+    }
+
+    /**
+     * 汇总队列只在有剩余容量时搬运，不会丢弃，丢弃只发生在各分片内部
+     */
+    @Override
+    public long dropped() {
+        long dropped = 0;
+        for (TopK shard : shards) {
+            dropped += shard.dropped();
+        }
+        return dropped;
+    }
+
+    @Override
+    public void fading() {
+        for (TopK shard : shards) {
+            shard.fading();
+        }
+    }
+
+    @Override
+    public long total() {
+        long total = 0;
+        for (TopK shard : shards) {
+            total += shard.total();
+        }
+        return total;
+    }
+
+    @Override
+    public double saturation() {
+        double sum = 0;
+        for (TopK shard : shards) {
+            sum += shard.saturation();
+        }
+        return sum / shards.length;
+    }
+
+    private BlockingQueue<Item> collect(BlockingQueue<Item> target, Function<TopK, BlockingQueue<Item>> source) {
+        for (TopK shard : shards) {
+            Item item;
+            while (target.remainingCapacity() > 0 && (item = source.apply(shard).poll()) != null) {
+                target.offer(item);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * String 会缓存 hashCode，这里不再重复计算 128 位哈希
+     */
+    private TopK shardOf(String key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return shards[Math.floorMod(h * 0x9E3779B9, shards.length)];
+    }
+
+    /**
+     * 两个 long 组成的 key 按 long 的值分片，
+     * 同一个 key 应始终通过同一种 add 方法记录，否则两种形式可能落在不同分片
+     */
+    private TopK shardOf(long first, long second) {
+        long h = first * 0x9E3779B97F4A7C15L + second;
+        h ^= h >>> 32;
+        return shards[Math.floorMod((int) h * 0x9E3779B9, shards.length)];
+    }
+}
@@ -8,8 +8,28 @@ import java.util.concurrent.BlockingQueue;
  */
 public interface TopK {
     AddResult add(String key, int increment);
+
+    /**
+     * 记录由两个 long 组成的 key（如 userId + blogId）的访问，直接对 long 计算哈希
+     * 已在 TopK 中或计数不足以进入 TopK 时不分配内存
+     * @param formatter 生成该 key 在 TopK 中的字符串形式，只在 key 进入 TopK 时调用
+     * @return 当前 key 是否在 TopK 中
+     */
+    boolean add(long first, long second, int increment, PairKeyFormatter formatter);
     List<Item> list();
     BlockingQueue<Item> expelled();
+    BlockingQueue<Item> promoted();
+
+    /**
+     * expelled() / promoted() 队列已满而丢弃的事件数，只增不减；
+     * 增长时说明消费跟不上，队列中的事件不再完整，应按 list() 重新对齐
+     */
+    long dropped();
     void fading();
     long total();
+
+    /**
+     * 草图饱和度：非空桶占全部桶的比例，接近 1 时说明宽度不足，冷 key 之间冲突严重
+     */
+    double saturation();
 }
@@ -0,0 +1,380 @@
+package org.xiaobai.prettylike.manager.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 带索引的 TopK 最小堆
+ * 1.key -> 节点 的索引使用 ConcurrentHashMap，判断 key 是否已在 TopK 中无需加锁
+ * 2.已在 TopK 中的 key 只通过 CAS 抬高节点计数，不调整堆（延迟更新），读路径完全无锁
+ * 3.只有新 key 进入 TopK（插入/挤出）时才加锁，此时先把堆顶修正为真实计数，再做 O(log k) 的替换
+ * 4.由两个 long 组成的 key 额外有一个开放寻址的 (first, second) -> 节点 索引，查找时不需要构造字符串 key
+ * 5.计数都带有纪元，fading() 只把纪元加一，读取时按落后的纪元数右移；
+ *   减半是单调变换，所有节点同时减半不会破坏堆的顺序
+ * 6.挤出/晋升队列容量为 k，消费跟不上时新事件被丢弃并计入 dropped()，由消费方按当前 TopK 重新对齐
+ */
+class TopKHeap {
+
+    private static final AtomicLongFieldUpdater<Node> STATE_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(Node.class, "state");
+
+    private final int k;
+    private final ConcurrentHashMap<String, Node> index;
+    private final Node[] heap;// 按照 heapCount 升序的最小堆，受 this 锁保护
+    private final Node[] pairIndex;// 线性探测的 long 键索引，只在持有锁时修改，读取时可能看到旧值
+    private volatile int size;
+    private volatile long admissionThreshold;// 堆满时进入 TopK 的最低计数及其纪元（可能偏低，只用于快速过滤）
+    private final AtomicInteger epoch = new AtomicInteger();// 当前纪元
+    private final BlockingQueue<Item> expelledQueue; // 用于存储被挤出的元素
+    private final BlockingQueue<Item> promotedQueue; // 用于存储新进入 TopK 的元素
+    private final LongAdder droppedExpelled = new LongAdder();// 挤出队列已满而丢弃的事件数
+    private final LongAdder droppedPromoted = new LongAdder();// 晋升队列已满而丢弃的事件数
+
+    TopKHeap(int k) {
+        this.k = k;
+        this.index = new ConcurrentHashMap<>(k * 2);
+        this.heap = new Node[k];
+        this.pairIndex = new Node[Integer.highestOneBit(Math.max(2, k * 4 - 1)) << 1];
+        this.expelledQueue = new LinkedBlockingQueue<>(k);
+        this.promotedQueue = new LinkedBlockingQueue<>(k);
+    }
+
+    /**
+     * 记录 key 的最新估计计数
+     * @param key key
+     * @param count 草图估计出的计数
+     * @return 添加结果
+     */
+    AddResult offer(String key, int count) {
+        // 已在 TopK 中，无锁更新计数
+        int currentEpoch = epoch.get();
+        Node node = index.get(key);
+        if (node != null) {
+            node.raise(count, currentEpoch);
+            return new AddResult(null, true, key);
+        }
+        // 堆已满且计数不足以挤掉堆顶
+        if (size >= k && count < countAt(admissionThreshold, currentEpoch)) {
+            return new AddResult(null, false, key);
+        }
+        return admit(key, count, false, 0, 0);
+    }
+
+    /**
+     * 记录由两个 long 组成的 key 的最新估计计数
+     * 已在 TopK 中或计数不足时不会调用 formatter，也不会分配内存
+     * @return 当前 key 是否在 TopK 中
+     */
+    boolean offer(long first, long second, int count, PairKeyFormatter formatter) {
+        int currentEpoch = epoch.get();
+        Node node = findPair(first, second);
+        if (node != null) {
+            node.raise(count, currentEpoch);
+            return true;
+        }
+        if (size >= k && count < countAt(admissionThreshold, currentEpoch)) {
+            return false;
+        }
+        // 索引读取可能看到旧值，进入加锁路径后会按字符串 key 再次确认
+        return admit(formatter.format(first, second), count, true, first, second).isHotKey();
+    }
+
+    private synchronized AddResult admit(String key, int count, boolean paired, long first, long second) {
+        int currentEpoch = epoch.get();
+        Node node = index.get(key);
+        if (node != null) {
+            node.raise(count, currentEpoch);
+            return new AddResult(null, true, key);
+        }
+
+        if (size < k) {
+            node = new Node(key, count, currentEpoch, paired, first, second);
+            heap[size] = node;
+            size = size + 1;
+            siftUp(size - 1, currentEpoch);
+            index(node);
+            emit(promotedQueue, droppedPromoted, new Item(key, count));
+            if (size == k) {
+                updateAdmissionThreshold(currentEpoch);
+            }
+            return new AddResult(null, true, key);
+        }
+
+        settleRoot(currentEpoch);
+        Node min = heap[0];
+        int minCount = min.heapCountAt(currentEpoch);
+        if (count < minCount) {
+            admissionThreshold = pack(currentEpoch, minCount);
+            return new AddResult(null, false, key);
+        }
+
+        // 挤出堆顶
+        unindex(min);
+        emit(expelledQueue, droppedExpelled, new Item(min.key, min.countAt(currentEpoch)));
+
+        node = new Node(key, count, currentEpoch, paired, first, second);
+        heap[0] = node;
+        siftDown(0, currentEpoch);
+        index(node);
+        emit(promotedQueue, droppedPromoted, new Item(key, count));
+
+        updateAdmissionThreshold(currentEpoch);
+        return new AddResult(min.key, true, key);
+    }
+
+    /**
+     * 持有锁时调用，不阻塞写入：队列已满时丢弃事件并计数
+     */
+    private static void emit(BlockingQueue<Item> queue, LongAdder dropped, Item item) {
+        if (!queue.offer(item)) {
+            dropped.increment();
+        }
+    }
+
+    private void updateAdmissionThreshold(int currentEpoch) {
+        settleRoot(currentEpoch);
+        admissionThreshold = pack(currentEpoch, heap[0].heapCountAt(currentEpoch));
+    }
+
+    /**
+     * 当前 TopK 快照，按计数降序
+     * 基于 ConcurrentHashMap 的弱一致遍历，不加锁
+     */
+    List<Item> list() {
+        int currentEpoch = epoch.get();
+        List<Item> result = new ArrayList<>(size);
+        for (Node node : index.values()) {
+            result.add(new Item(node.key, node.countAt(currentEpoch)));
+        }
+        result.sort(Comparator.comparingInt(Item::count).reversed());
+        return result;
+    }
+
+    boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    boolean contains(long first, long second) {
+        return findPair(first, second) != null;
+    }
+
+    BlockingQueue<Item> expelled() {
+        return expelledQueue;
+    }
+
+    BlockingQueue<Item> promoted() {
+        return promotedQueue;
+    }
+
+    long dropped() {
+        return droppedExpelled.sum() + droppedPromoted.sum();
+    }
+
+    long droppedPromoted() {
+        return droppedPromoted.sum();
+    }
+
+    /**
+     * 清空堆、索引和队列，复用已分配的数组；未被消费的晋升事件计入丢弃数
+     * 丢弃计数只增不减，不随清空归零
+     */
+    synchronized void reset() {
+        droppedPromoted.add(promotedQueue.size());
+        promotedQueue.clear();
+        expelledQueue.clear();
+        for (int i = 0; i < size; i++) {
+            unindex(heap[i]);
+            heap[i] = null;
+        }
+        size = 0;
+        admissionThreshold = 0;
+    }
+
+    /**
+     * 所有节点计数减半，O(1)：只推进纪元，不加锁，也不遍历堆
+     */
+    void fading() {
+        epoch.incrementAndGet();
+    }
+
+    private Node findPair(long first, long second) {
+        Node[] table = pairIndex;
+        int mask = table.length - 1;
+        for (int slot = pairSlot(first, second, mask); ; slot = (slot + 1) & mask) {
+            Node node = table[slot];
+            if (node == null) {
+                return null;
+            }
+            if (node.first == first && node.second == second) {
+                return node;
+            }
+        }
+    }
+
+    private void index(Node node) {
+        index.put(node.key, node);
+        if (!node.paired) {
+            return;
+        }
+        int mask = pairIndex.length - 1;
+        int slot = pairSlot(node.first, node.second, mask);
+        while (pairIndex[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        pairIndex[slot] = node;
+    }
+
+    /**
+     * 删除后把后续探测链上的节点前移，保持线性探测的连续性
+     */
+    private void unindex(Node node) {
+        index.remove(node.key);
+        if (!node.paired) {
+            return;
+        }
+        int mask = pairIndex.length - 1;
+        int slot = pairSlot(node.first, node.second, mask);
+        while (pairIndex[slot] != node) {
+            slot = (slot + 1) & mask;
+        }
+        int hole = slot;
+        for (int next = (hole + 1) & mask; pairIndex[next] != null; next = (next + 1) & mask) {
+            Node candidate = pairIndex[next];
+            int home = pairSlot(candidate.first, candidate.second, mask);
+            // home 不在 (hole, next] 区间内时才能前移到 hole
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                pairIndex[hole] = candidate;
+                hole = next;
+            }
+        }
+        pairIndex[hole] = null;
+    }
+
+    private static int pairSlot(long first, long second, int mask) {
+        long h = first * 0x9E3779B97F4A7C15L + second;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 32;
+        return (int) h & mask;
+    }
+
+    /**
+     * 堆顶的 heapCount 可能落后于真实计数，将其修正后下沉，直到堆顶为真实最小值
+     */
+    private void settleRoot(int currentEpoch) {
+        Node root = heap[0];
+        int count;
+        while ((count = root.countAt(currentEpoch)) > root.heapCountAt(currentEpoch)) {
+            root.heapCount = count;
+            root.heapEpoch = currentEpoch;
+            siftDown(0, currentEpoch);
+            root = heap[0];
+        }
+    }
+
+    private void siftUp(int slot, int currentEpoch) {
+        Node node = heap[slot];
+        int nodeCount = node.heapCountAt(currentEpoch);
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            Node parentNode = heap[parent];
+            if (parentNode.heapCountAt(currentEpoch) <= nodeCount) {
+                break;
+            }
+            heap[slot] = parentNode;
+            slot = parent;
+        }
+        heap[slot] = node;
+    }
+
+    private void siftDown(int slot, int currentEpoch) {
+        Node node = heap[slot];
+        int nodeCount = node.heapCountAt(currentEpoch);
+        int half = size >>> 1;
+        while (slot < half) {
+            int child = (slot << 1) + 1;
+            Node childNode = heap[child];
+            int childCount = childNode.heapCountAt(currentEpoch);
+            int right = child + 1;
+            if (right < size) {
+                int rightCount = heap[right].heapCountAt(currentEpoch);
+                if (rightCount < childCount) {
+                    child = right;
+                    childNode = heap[child];
+                    childCount = rightCount;
+                }
+            }
+            if (nodeCount <= childCount) {
+                break;
+            }
+            heap[slot] = childNode;
+            slot = child;
+        }
+        heap[slot] = node;
+    }
+
+    private static final class Node {
+        final String key;
+        // 是否为两个 long 组成的 key，是则同时记录在 pairIndex 中
+        final boolean paired;
+        final long first;
+        final long second;
+        // 真实计数及其纪元（高 32 位纪元，低 32 位计数），只增不减（衰减除外），无锁更新
+        volatile long state;
+        // 堆中使用的计数及其纪元，只在持有锁时修改，始终 <= 真实计数
+        int heapCount;
+        int heapEpoch;
+
+        Node(String key, int count, int epoch, boolean paired, long first, long second) {
+            this.key = key;
+            this.paired = paired;
+            this.first = first;
+            this.second = second;
+            this.state = pack(epoch, count);
+            this.heapCount = count;
+            this.heapEpoch = epoch;
+        }
+
+        int countAt(int currentEpoch) {
+            return TopKHeap.countAt(state, currentEpoch);
+        }
+
+        int heapCountAt(int currentEpoch) {
+            return TopKHeap.countAt(pack(heapEpoch, heapCount), currentEpoch);
+        }
+
+        void raise(int newCount, int currentEpoch) {
+            long current;
+            do {
+                current = state;
+                // 其他线程已按更新的纪元写入，当前估计值已过时
+                if ((int) (current >>> 32) - currentEpoch > 0 || newCount <= TopKHeap.countAt(current, currentEpoch)) {
+                    return;
+                }
+            } while (!STATE_UPDATER.compareAndSet(this, current, pack(currentEpoch, newCount)));
+        }
+    }
+
+    private static long pack(int epoch, int count) {
+        return ((long) epoch << 32) | (count & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 按落后的纪元数把计数减半
+     */
+    private static int countAt(long state, int currentEpoch) {
+        int behind = currentEpoch - (int) (state >>> 32);
+        int count = (int) state;
+        if (behind <= 0) {
+            return count;
+        }
+        return behind >= Integer.SIZE ? 0 : count >>> behind;
+    }
+}
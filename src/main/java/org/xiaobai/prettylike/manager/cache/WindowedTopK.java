@@ -0,0 +1,179 @@
+package org.xiaobai.prettylike.manager.cache;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 滑动窗口热key 检测器
+ * 按时间片维护一圈小的 {@link LockFreeHeavyKeeper}，写入只进入当前时间片；
+ * fading() 不再减半，而是轮转到下一个时间片并原地清空最旧的时间片。
+ * 1.是否为热key 按短窗口判断：key 在当前或上一个时间片的 TopK 中
+ * 2.被挤出按长窗口判断：轮转时不再出现在最近 demoteSlots 个时间片合并 TopK 中的 key 进入 expelled()
+ * 3.list(slots) 合并最近若干个时间片的 TopK，用于查询最近 1 / 5 / 15 分钟的热key
+ */
+public class WindowedTopK implements TopK {
+
+    private final int k;
+    private final int demoteSlots;
+
+    // 时间片环，只在构造时分配，轮转时原地清空最旧的时间片
+    private final LockFreeHeavyKeeper[] slots;
+    private volatile int head;
+
+    private final BlockingQueue<Item> expelledQueue;
+    private final BlockingQueue<Item> promotedQueue;
+    private Set<String> demoteWindowKeys = Set.of();// 上一次轮转时长窗口中的 key，只在轮转时访问
+    private final LongAdder dropped = new LongAdder();// 挤出队列已满而丢弃的事件数
+
+    /**
+     * @param slotCount   时间片数量，决定 list() 能查询的最长窗口
+     * @param demoteSlots 长窗口包含的时间片数量
+     * @param k           每个时间片监控 Top K 个 key
+     * @param width       每个时间片的哈希表宽度
+     * @param depth       哈希表深度
+     * @param decay       衰减系数
+     * @param minCount    最小计数阀值
+     */
+    public WindowedTopK(int slotCount, int demoteSlots, int k, int width, int depth, double decay, int minCount) {
+        this.k = k;
+        this.demoteSlots = Math.min(Math.max(1, demoteSlots), slotCount);
+        this.slots = new LockFreeHeavyKeeper[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new LockFreeHeavyKeeper(k, width, depth, decay, minCount);
+        }
+        this.expelledQueue = new LinkedBlockingQueue<>(k);
+        this.promotedQueue = new LinkedBlockingQueue<>(k);
+    }
+
+    @Override
+    public AddResult add(String key, int increment) {
+        AddResult result = slots[head].add(key, increment);
+        if (!result.isHotKey() && previous().contains(key)) {
+            return new AddResult(null, true, key);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean add(long first, long second, int increment, PairKeyFormatter formatter) {
+        return slots[head].add(first, second, increment, formatter) || previous().contains(first, second);
+    }
+
+    /**
+     * 所有时间片合并后的 TopK
+     */
+    @Override
+    public List<Item> list() {
+        return list(slots.length);
+    }
+
+    /**
+     * 最近 windowSlots 个时间片合并后的 TopK，计数为各时间片计数之和
+     * 某个时间片中未进入 TopK 的 key 在该时间片中按 0 计
+     */
+    public List<Item> list(int windowSlots) {
+        int current = head;
+        int n = Math.min(Math.max(1, windowSlots), slots.length);
+        Map<String, Integer> merged = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            for (Item item : slots[Math.floorMod(current - i, slots.length)].list()) {
+                merged.merge(item.key(), item.count(), Integer::sum);
+            }
+        }
+        return merged.entrySet().stream()
+                .map(e -> new Item(e.getKey(), e.getValue()))
+                .sorted(Comparator.comparingInt(Item::count).reversed())
+                .limit(k)
+                .toList();
+    }
+
+    /**
+     * 时间片数量
+     */
+    public int slotCount() {
+        return slots.length;
+    }
+
+    /**
+     * 轮转时离开长窗口的 key
+     */
+    @Override
+    public BlockingQueue<Item> expelled() {
+        return expelledQueue;
+    }
+
+    /**
+     * 新进入当前时间片 TopK 的 key
+     */
+    @Override
+    public BlockingQueue<Item> promoted() {
+        Item item;
+        BlockingQueue<Item> source = slots[head].promoted();
+        while (promotedQueue.remainingCapacity() > 0 && (item = source.poll()) != null) {
+            promotedQueue.offer(item);
+        }
+        return promotedQueue;
+    }
+
+    /**
+     * 时间片内部的挤出不对外发布，只统计各时间片丢弃的晋升事件和长窗口挤出时丢弃的事件
+     */
+    @Override
+    public long dropped() {
+        long total = dropped.sum();
+        for (LockFreeHeavyKeeper slot : slots) {
+            total += slot.droppedPromoted();
+        }
+        return total;
+    }
+
+    /**
+     * 轮转到下一个时间片，最旧的时间片原地清空后作为新的时间片，不重新分配桶数组和堆
+     */
+    @Override
+    public synchronized void fading() {
+        // 把即将切走的时间片中尚未消费的晋升事件转移出来
+        promoted();
+        int next = (head + 1) % slots.length;
+        slots[next].reset();
+        head = next;
+
+        // 长窗口中消失的 key 才算被挤出，时间片内部的挤出不影响本地缓存
+        Set<String> current = new HashSet<>();
+        for (Item item : list(demoteSlots)) {
+            current.add(item.key());
+        }
+        for (String key : demoteWindowKeys) {
+            if (!current.contains(key) && !expelledQueue.offer(new Item(key, 0))) {
+                dropped.increment();
+            }
+        }
+        demoteWindowKeys = current;
+    }
+
+    /**
+     * 窗口内的总计数
+     */
+    @Override
+    public long total() {
+        long total = 0;
+        for (LockFreeHeavyKeeper slot : slots) {
+            total += slot.total();
+        }
+        return total;
+    }
+
+    /**
+     * 当前时间片的饱和度
+     */
+    @Override
+    public double saturation() {
+        return slots[head].saturation();
+    }
+
+    private LockFreeHeavyKeeper previous() {
+        return slots[Math.floorMod(head - 1, slots.length)];
+    }
+}
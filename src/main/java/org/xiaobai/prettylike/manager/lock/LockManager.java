@@ -0,0 +1,17 @@
+package org.xiaobai.prettylike.manager.lock;
+
+import java.util.function.Supplier;
+
+/**
+ * 按 key 加锁
+ */
+public interface LockManager {
+
+    /**
+     * 在 key 对应的锁内执行 action，等待超过配置的超时时间时抛出异常
+     * @param key    锁的 key
+     * @param action 持有锁时执行的操作
+     * @return action 的返回值
+     */
+    <T> T executeWithLock(String key, Supplier<T> action);
+}
@@ -0,0 +1,25 @@
+package org.xiaobai.prettylike.manager.lock;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 锁等待时间指标
+ */
+final class LockMetrics {
+
+    private LockMetrics() {
+    }
+
+    /**
+     * @param type   local / redis
+     * @param result acquired / timeout
+     */
+    static Timer waitTimer(MeterRegistry meterRegistry, String type, String result) {
+        return Timer.builder("lock.wait")
+                .tags("type", type, "result", result)
+                .description("Time spent waiting for a keyed lock")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
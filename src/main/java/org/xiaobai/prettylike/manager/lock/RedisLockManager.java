@@ -0,0 +1,134 @@
+package org.xiaobai.prettylike.manager.lock;
+
+import cn.hutool.core.util.IdUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.xiaobai.prettylike.common.constant.RedisLuaScriptConstant;
+import org.xiaobai.prettylike.config.LockProperties;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 分布式锁（多实例）
+ * 先获取本机的分段锁，同一实例内的竞争不会打到 Redis；
+ * 再通过 SET NX PX 获取 Redis 锁，释放时用 Lua 脚本校验 token 后删除，避免误删其他实例的锁；
+ * 持有期间由看门狗虚拟线程按 1/3 租期续期，执行时间超过租期也不会被其他实例抢占
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "lock", name = "type", havingValue = "redis")
+public class RedisLockManager implements LockManager {
+
+    private static final String LOCK_KEY_PREFIX = "lock:";
+    private static final long MIN_BACKOFF_MILLIS = 5;
+    private static final long MAX_BACKOFF_MILLIS = 100;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final StripedLockManager localLocks;
+    private final long waitTimeoutNanos;
+    private final Duration leaseTime;
+    private final Timer acquiredTimer;
+    private final Timer timeoutTimer;
+
+    public RedisLockManager(StringRedisTemplate stringRedisTemplate, LockProperties lockProperties,
+                            MeterRegistry meterRegistry) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.localLocks = new StripedLockManager(lockProperties, meterRegistry);
+        this.waitTimeoutNanos = lockProperties.getWaitTimeout().toNanos();
+        this.leaseTime = lockProperties.getLeaseTime();
+        this.acquiredTimer = LockMetrics.waitTimer(meterRegistry, "redis", "acquired");
+        this.timeoutTimer = LockMetrics.waitTimer(meterRegistry, "redis", "timeout");
+    }
+
+    @Override
+    public <T> T executeWithLock(String key, Supplier<T> action) {
+        long start = System.nanoTime();
+        ReentrantLock localLock = localLocks.lockFor(key);
+        if (!localLocks.tryLock(localLock, waitTimeoutNanos)) {
+            timeoutTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw new RuntimeException("操作频繁，请稍后重试");
+        }
+        try {
+            String lockKey = LOCK_KEY_PREFIX + key;
+            String token = IdUtil.fastSimpleUUID();
+            if (!acquire(lockKey, token, start + waitTimeoutNanos)) {
+                timeoutTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw new RuntimeException("操作频繁，请稍后重试");
+            }
+            acquiredTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            Thread watchdog = startWatchdog(lockKey, token);
+            try {
+                return action.get();
+            } finally {
+                watchdog.interrupt();
+                Long released = stringRedisTemplate.execute(RedisLuaScriptConstant.UNLOCK_SCRIPT, List.of(lockKey), token);
+                if (released == null || released == 0) {
+                    log.error("释放锁 {} 时锁已过期或被其他实例持有，持有期间可能存在并发修改", lockKey);
+                }
+            }
+        } finally {
+            localLock.unlock();
+        }
+    }
+
+    /**
+     * 每隔 1/3 租期校验 token 后续期，锁已丢失或被中断时退出；单次续期失败（如网络抖动）会在下一轮重试
+     */
+    private Thread startWatchdog(String lockKey, String token) {
+        long interval = Math.max(1, leaseTime.toMillis() / 3);
+        String leaseMillis = String.valueOf(leaseTime.toMillis());
+        return Thread.ofVirtual().name("lock-watchdog").start(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(interval);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    Long renewed = stringRedisTemplate.execute(RedisLuaScriptConstant.RENEW_LOCK_SCRIPT,
+                            List.of(lockKey), token, leaseMillis);
+                    if (renewed != null && renewed == 0) {
+                        log.warn("锁 {} 续期失败，已过期或被其他实例持有", lockKey);
+                        return;
+                    }
+                } catch (Exception e) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    log.warn("锁 {} 续期异常", lockKey, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * 在截止时间前循环尝试获取 Redis 锁，失败后指数退避
+     */
+    private boolean acquire(String lockKey, String token, long deadlineNanos) {
+        long backoff = MIN_BACKOFF_MILLIS;
+        while (true) {
+            if (Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(lockKey, token, leaseTime))) {
+                return true;
+            }
+            long remaining = deadlineNanos - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            try {
+                Thread.sleep(Math.min(backoff, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("获取锁被中断");
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.xiaobai.prettylike.manager.lock;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.xiaobai.prettylike.config.LockProperties;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 分段锁（单机）
+ * 固定数量的 ReentrantLock，key 按哈希映射到其中一个：
+ * 1.内存占用固定，不会像 String.intern() 那样为每个用户留下一个常量
+ * 2.ReentrantLock 阻塞时虚拟线程会让出载体线程，不会像 synchronized 一样被钉住
+ * 3.不同 key 可能映射到同一把锁，锁的数量越多冲突越少
+ */
+@Component
+@ConditionalOnProperty(prefix = "lock", name = "type", havingValue = "local", matchIfMissing = true)
+public class StripedLockManager implements LockManager {
+
+    private final ReentrantLock[] stripes;
+    private final long waitTimeoutNanos;
+    private final Timer acquiredTimer;
+    private final Timer timeoutTimer;
+
+    public StripedLockManager(LockProperties lockProperties, MeterRegistry meterRegistry) {
+        int count = Integer.highestOneBit(Math.max(1, lockProperties.getStripes() - 1)) << 1;
+        this.stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.waitTimeoutNanos = lockProperties.getWaitTimeout().toNanos();
+        this.acquiredTimer = LockMetrics.waitTimer(meterRegistry, "local", "acquired");
+        this.timeoutTimer = LockMetrics.waitTimer(meterRegistry, "local", "timeout");
+    }
+
+    @Override
+    public <T> T executeWithLock(String key, Supplier<T> action) {
+        ReentrantLock lock = lockFor(key);
+        if (!tryLock(lock, waitTimeoutNanos)) {
+            throw new RuntimeException("操作频繁，请稍后重试");
+        }
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 在超时时间内获取 key 对应的锁，并记录等待时间
+     * @return 是否获取成功
+     */
+    boolean tryLock(ReentrantLock lock, long timeoutNanos) {
+        long start = System.nanoTime();
+        try {
+            boolean locked = lock.tryLock(timeoutNanos, TimeUnit.NANOSECONDS);
+            (locked ? acquiredTimer : timeoutTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return locked;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("获取锁被中断");
+        }
+    }
+
+    ReentrantLock lockFor(String key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return stripes[h & (stripes.length - 1)];
+    }
+}
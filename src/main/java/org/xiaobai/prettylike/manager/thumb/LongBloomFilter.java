@@ -0,0 +1,109 @@
+package org.xiaobai.prettylike.manager.thumb;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 以 long 为元素的布隆过滤器
+ * 1.位数组存放在 AtomicLongArray 中，写入通过 CAS 置位，不加锁，读取不分配内存
+ * 2.对元素只计算一次 64 位混淆哈希，各个哈希函数的位置由 h1 + i * h2 推导
+ * 3.不支持删除：mightContain() 返回 false 时元素一定不存在，返回 true 时可能误判
+ */
+public class LongBloomFilter {
+
+    private static final int MAX_HASH_FUNCTIONS = 16;
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashFunctions;
+    private final long expectedInsertions;
+    private final AtomicLong insertions = new AtomicLong();
+
+    /**
+     * @param expectedInsertions 预计写入的元素数量
+     * @param fpp                期望的误判率
+     */
+    public LongBloomFilter(long expectedInsertions, double fpp) {
+        if (expectedInsertions <= 0 || fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("布隆过滤器参数错误");
+        }
+        // m = -n * ln(p) / (ln2)^2，k = m / n * ln2
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (optimalBits + Long.SIZE - 1) / Long.SIZE);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * Long.SIZE;
+        this.hashFunctions = (int) Math.min(MAX_HASH_FUNCTIONS,
+                Math.max(1, Math.round((double) bitCount / expectedInsertions * Math.log(2))));
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    /**
+     * 写入元素
+     */
+    public void put(long value) {
+        long h1 = mix(value);
+        long h2 = mix(h1) | 1;
+        boolean changed = false;
+        for (int i = 0; i < hashFunctions; i++) {
+            long index = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current;
+            while (((current = bits.get(word)) & mask) == 0) {
+                if (bits.compareAndSet(word, current, current | mask)) {
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        if (changed) {
+            insertions.incrementAndGet();
+        }
+    }
+
+    /**
+     * 元素是否可能存在
+     * @return false 表示一定不存在
+     */
+    public boolean mightContain(long value) {
+        long h1 = mix(value);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long index = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 写入元素数量是否已超过预计数量，超过后误判率会明显上升，需要按更大的容量重建
+     */
+    public boolean isSaturated() {
+        return insertions.get() > expectedInsertions;
+    }
+
+    /**
+     * 位数组占用的 long 数量
+     */
+    public int words() {
+        return bits.length();
+    }
+
+    /**
+     * 近似的写入元素数量（重复写入同一元素不计数）
+     */
+    public long insertions() {
+        return insertions.get();
+    }
+
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb93fe53d3b1aL;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,216 @@
+package org.xiaobai.prettylike.manager.thumb;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.xiaobai.prettylike.config.ThumbFilterProperties;
+import org.xiaobai.prettylike.manager.cache.ClusterChannel;
+import org.xiaobai.prettylike.mapper.ThumbMapper;
+import org.xiaobai.prettylike.model.entity.Thumb;
+
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 用户点赞过滤器
+ * 每个用户一个布隆过滤器，记录该用户点赞过的博客，用于在 hasThumb() 前排除一定未点赞的 (userId, blogId)：
+ * 1.过滤器在用户第一次被查询时异步构建，数据来源为数据库点赞记录和 Redis 点赞记录的并集，构建完成前的查询一律放行
+ * 2.点赞成功后写入本实例的过滤器，并通过集群广播写入其他实例的过滤器；构建期间收到的点赞先暂存，构建完成后补写
+ * 3.布隆过滤器不能删除，取消点赞不更新过滤器，多出的位只会让查询回落到缓存 / Redis；过滤器定期过期重建
+ */
+@Slf4j
+@Component
+public class ThumbFilter {
+
+    /**
+     * 点赞广播频道，消息内容为 userId:blogId
+     */
+    static final String THUMB_FILTER_CHANNEL = "thumb:filter";
+
+    @Resource
+    private ThumbFilterProperties thumbFilterProperties;
+
+    @Resource
+    private ThumbMapper thumbMapper;
+
+    @Resource
+    private UserThumbStore userThumbStore;
+
+    @Resource
+    private ClusterChannel clusterChannel;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private Cache<Long, UserFilter> filters;
+
+    private Counter negativeCounter;
+    private Counter positiveCounter;
+    private Counter unknownCounter;
+
+    @PostConstruct
+    public void init() {
+        filters = Caffeine.newBuilder()
+                // 按位数组大小计算权重，构建中的过滤器权重为 1
+                .maximumWeight(Math.max(1, thumbFilterProperties.getMaximumBits() / Long.SIZE))
+                .weigher((Long userId, UserFilter filter) -> filter.weight())
+                .expireAfterWrite(thumbFilterProperties.getExpireAfterWrite())
+                .build();
+        negativeCounter = lookupCounter("negative");
+        positiveCounter = lookupCounter("positive");
+        unknownCounter = lookupCounter("unknown");
+        clusterChannel.subscribe(THUMB_FILTER_CHANNEL, this::onMessage);
+    }
+
+    private Counter lookupCounter(String result) {
+        return Counter.builder("thumb.filter.lookups")
+                .tag("result", result)
+                .description("Like-state filter lookups; negative lookups skip the cache and Redis")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 用户是否可能点赞过博客
+     * @return false 表示一定未点赞；过滤器未开启或尚未构建完成时返回 true
+     */
+    public boolean mightHaveThumb(long userId, long blogId) {
+        if (!thumbFilterProperties.isEnabled()) {
+            return true;
+        }
+        UserFilter filter = filters.getIfPresent(userId);
+        if (filter == null) {
+            startBuild(userId);
+            unknownCounter.increment();
+            return true;
+        }
+        if (!filter.ready) {
+            unknownCounter.increment();
+            return true;
+        }
+        if (filter.bloom.mightContain(blogId)) {
+            positiveCounter.increment();
+            return true;
+        }
+        negativeCounter.increment();
+        return false;
+    }
+
+    /**
+     * 点赞成功后调用，需在点赞记录写入 Redis 之后调用，保证其他实例此后构建的过滤器包含该点赞
+     */
+    public void recordThumb(long userId, long blogId) {
+        if (!thumbFilterProperties.isEnabled()) {
+            return;
+        }
+        addLocal(userId, blogId);
+        clusterChannel.publish(THUMB_FILTER_CHANNEL, userId + ":" + blogId);
+    }
+
+    private void onMessage(String message) {
+        int separator = message.indexOf(':');
+        if (separator <= 0) {
+            log.warn("点赞过滤器消息格式错误: {}", message);
+            return;
+        }
+        try {
+            addLocal(Long.parseLong(message.substring(0, separator)), Long.parseLong(message.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            log.warn("点赞过滤器消息格式错误: {}", message);
+        }
+    }
+
+    private void addLocal(long userId, long blogId) {
+        UserFilter filter = filters.getIfPresent(userId);
+        // 过滤器不存在时无需处理，之后构建时会从 Redis 读到这次点赞
+        if (filter == null) {
+            return;
+        }
+        filter.add(blogId);
+        if (filter.ready && filter.bloom.isSaturated()) {
+            // 点赞数超过容量后误判率上升，丢弃后按新的点赞数重建
+            filters.asMap().remove(userId, filter);
+        }
+    }
+
+    private void startBuild(long userId) {
+        UserFilter filter = new UserFilter();
+        // 同一用户只有一个线程构建
+        if (filters.asMap().putIfAbsent(userId, filter) != null) {
+            return;
+        }
+        Thread.startVirtualThread(() -> {
+            try {
+                Set<Long> blogIds = loadBlogIds(userId);
+                long expected = Math.max(thumbFilterProperties.getMinExpectedInsertions(), blogIds.size() * 2L);
+                LongBloomFilter bloom = new LongBloomFilter(expected, thumbFilterProperties.getFpp());
+                blogIds.forEach(bloom::put);
+                filter.complete(bloom);
+                // 重新写入以按位数组大小计算权重；期间被淘汰或丢弃时不再写回
+                filters.asMap().replace(userId, filter, filter);
+            } catch (Exception e) {
+                log.error("构建用户点赞过滤器失败: userId={}", userId, e);
+                filters.asMap().remove(userId, filter);
+            }
+        });
+    }
+
+    /**
+     * 用户点赞过的博客：数据库中已同步的点赞 ∪ Redis 中的点赞（包括尚未同步到数据库的）
+     */
+    private Set<Long> loadBlogIds(long userId) {
+        Set<Long> blogIds = new HashSet<>();
+        LambdaQueryWrapper<Thumb> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(Thumb::getBlogId).eq(Thumb::getUserId, userId);
+        for (Object blogId : thumbMapper.selectObjs(wrapper)) {
+            blogIds.add(Long.valueOf(blogId.toString()));
+        }
+        blogIds.addAll(userThumbStore.cachedBlogIds(userId));
+        return blogIds;
+    }
+
+    /**
+     * 单个用户的过滤器
+     * 构建完成前收到的点赞先放入 pending，构建线程先置 ready 再补写 pending；
+     * 写入线程先放入 pending 再检查 ready，两者之间总有一方会把点赞写入布隆过滤器
+     */
+    private static class UserFilter {
+
+        private volatile LongBloomFilter bloom;
+
+        private volatile boolean ready;
+
+        private final Queue<Long> pending = new ConcurrentLinkedQueue<>();
+
+        void add(long blogId) {
+            if (ready) {
+                bloom.put(blogId);
+                return;
+            }
+            pending.add(blogId);
+            if (ready) {
+                bloom.put(blogId);
+            }
+        }
+
+        void complete(LongBloomFilter bloom) {
+            this.bloom = bloom;
+            this.ready = true;
+            Long blogId;
+            while ((blogId = pending.poll()) != null) {
+                bloom.put(blogId);
+            }
+        }
+
+        int weight() {
+            return ready ? bloom.words() : 1;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.xiaobai.prettylike.manager.thumb;
+
+import org.springframework.stereotype.Component;
+import org.xiaobai.prettylike.model.entity.Thumb;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 点赞写缓冲（write-behind）
+ * 点赞 / 取消点赞只在内存中记录，由调用方定期 drain() 后批量写入数据库，宕机时由 {@link ThumbWriteBehindJournal} 恢复：
+ * 1.待插入和待删除的点赞记录都按 id 索引，flush 前取消点赞可以直接抵消，不会产生一次插入和一次删除
+ * 2.博客点赞数的增量不单独累计，由调用方按实际写入的记录计算，按 maxRecords 分批取出时，增量与已写入的记录始终一致
+ * 3.写入失败的批次整体放回重试队列，drain() 优先取出，保证同一条记录的插入先于之后的删除写入
+ */
+@Component
+public class ThumbWriteBehindBuffer {
+
+    /**
+     * 一次 drain 的结果
+     * @param inserts  待插入的点赞记录
+     * @param deletes  待删除的点赞记录
+     * @param attempts 已失败的写入次数
+     */
+    public record Batch(List<Thumb> inserts, List<Thumb> deletes, int attempts) {
+
+        public boolean isEmpty() {
+            return inserts.isEmpty() && deletes.isEmpty();
+        }
+
+        public int size() {
+            return inserts.size() + deletes.size();
+        }
+    }
+
+    private final ConcurrentHashMap<Long, Thumb> pendingInserts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Thumb> pendingDeletes = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    // 写入失败等待重试的批次，按写入顺序排列
+    private final ConcurrentLinkedDeque<Batch> retries = new ConcurrentLinkedDeque<>();
+
+    /**
+     * 记录点赞，点赞记录需已分配 id
+     * @return 当前待写入的记录数
+     */
+    public int addThumb(Thumb thumb) {
+        if (pendingInserts.put(thumb.getId(), thumb) != null) {
+            // 重放日志时可能重复加入
+            return pending.get();
+        }
+        return pending.incrementAndGet();
+    }
+
+    /**
+     * 记录取消点赞
+     * @return 当前待写入的记录数
+     */
+    public int removeThumb(Thumb thumb) {
+        if (pendingInserts.remove(thumb.getId()) != null) {
+            // 尚未写入数据库，直接抵消
+            return pending.decrementAndGet();
+        }
+        if (pendingDeletes.put(thumb.getId(), thumb) != null) {
+            return pending.get();
+        }
+        return pending.incrementAndGet();
+    }
+
+    /**
+     * 取出缓冲中的记录，有等待重试的批次时先原样取出该批次
+     * @param maxRecords 最多取出的点赞记录数（插入 + 删除）
+     */
+    public synchronized Batch drain(int maxRecords) {
+        Batch retry = retries.pollFirst();
+        if (retry != null) {
+            pending.addAndGet(-retry.size());
+            return retry;
+        }
+        List<Thumb> inserts = new ArrayList<>();
+        Iterator<Thumb> iterator = pendingInserts.values().iterator();
+        while (inserts.size() < maxRecords && iterator.hasNext()) {
+            Thumb thumb = iterator.next();
+            // 并发取消点赞时 remove 返回 false，记录已被抵消
+            if (pendingInserts.remove(thumb.getId(), thumb)) {
+                inserts.add(thumb);
+            }
+        }
+        List<Thumb> deletes = new ArrayList<>();
+        iterator = pendingDeletes.values().iterator();
+        while (inserts.size() + deletes.size() < maxRecords && iterator.hasNext()) {
+            Thumb thumb = iterator.next();
+            iterator.remove();
+            deletes.add(thumb);
+        }
+        pending.addAndGet(-(inserts.size() + deletes.size()));
+        return new Batch(inserts, deletes, 0);
+    }
+
+    /**
+     * 写入数据库失败时放回重试队列的队首，在下一次 drain 时优先取出
+     * 写入期间被取消的点赞记录已进入待删除，二者一起抵消，避免留下已取消的点赞
+     * 需要按顺序放回多个批次时，按相反的顺序调用
+     */
+    public void restore(Batch batch) {
+        List<Thumb> inserts = new ArrayList<>(batch.inserts().size());
+        for (Thumb thumb : batch.inserts()) {
+            if (pendingDeletes.remove(thumb.getId()) != null) {
+                pending.decrementAndGet();
+                continue;
+            }
+            inserts.add(thumb);
+        }
+        Batch retry = new Batch(inserts, batch.deletes(), batch.attempts());
+        if (!retry.isEmpty()) {
+            pending.addAndGet(retry.size());
+            retries.addFirst(retry);
+        }
+    }
+
+    /**
+     * 待写入的点赞记录数
+     */
+    public int pending() {
+        return pending.get();
+    }
+}
@@ -0,0 +1,122 @@
+package org.xiaobai.prettylike.manager.thumb;
+
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.xiaobai.prettylike.common.constant.RedisLuaScriptConstant;
+import org.xiaobai.prettylike.common.constant.ThumbConstant;
+import org.xiaobai.prettylike.model.entity.Thumb;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 延迟写入日志
+ * 内存中的 {@link ThumbWriteBehindBuffer} 在实例宕机时会丢失，因此每次点赞 / 取消点赞都与点赞分桶在同一个 Lua 脚本中
+ * 写入 Redis 中的日志（见 {@link UserThumbStore#putJournaled}），写入数据库后再移除：
+ * 1.日志按点赞记录 id 只保留最后一次操作，取消点赞覆盖点赞
+ * 2.超过一定时间仍未移除的日志说明持有它的实例没能写入数据库，由任一实例重放；
+ *   插入和删除都按 id 执行，点赞数按实际影响的行计算，重放已写入的记录不会重复计数
+ * 3.多次写入失败而放弃的记录移入死信，不会丢失
+ */
+@Slf4j
+@Component
+public class ThumbWriteBehindJournal {
+
+    private static final int SCAN_COUNT = 1000;
+
+    /**
+     * 日志中的一条记录
+     * @param thumb  点赞记录（id、userId、blogId，点赞时还有写入时间）
+     * @param insert true 为待插入，false 为待删除
+     */
+    public record Entry(Thumb thumb, boolean insert) {
+    }
+
+    @Resource
+    private RedisTemplate<String, Long> thumbRedisTemplate;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 移除已写入数据库的记录的日志
+     */
+    public void ack(ThumbWriteBehindBuffer.Batch batch) {
+        remove(batch, List.of(ThumbConstant.THUMB_WRITE_BEHIND_JOURNAL_KEY));
+    }
+
+    /**
+     * 放弃写入的记录的日志移入死信
+     */
+    public void deadLetter(ThumbWriteBehindBuffer.Batch batch) {
+        remove(batch, List.of(ThumbConstant.THUMB_WRITE_BEHIND_JOURNAL_KEY,
+                ThumbConstant.THUMB_WRITE_BEHIND_DEAD_LETTER_KEY));
+    }
+
+    private void remove(ThumbWriteBehindBuffer.Batch batch, List<String> keys) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Long> args = new ArrayList<>(batch.size() * 4);
+        for (Thumb thumb : batch.inserts()) {
+            args.addAll(List.of(thumb.getId(), 1L, thumb.getUserId(), thumb.getBlogId()));
+        }
+        for (Thumb thumb : batch.deletes()) {
+            args.addAll(List.of(thumb.getId(), -1L, thumb.getUserId(), thumb.getBlogId()));
+        }
+        thumbRedisTemplate.execute(RedisLuaScriptConstant.WRITE_BEHIND_JOURNAL_REMOVE_SCRIPT, keys, args.toArray());
+    }
+
+    /**
+     * 写入时间早于 before 的日志
+     * @param before 毫秒时间戳
+     */
+    public List<Entry> staleEntries(long before) {
+        List<Entry> entries = new ArrayList<>();
+        try (Cursor<Map.Entry<Object, Object>> cursor = stringRedisTemplate.opsForHash()
+                .scan(ThumbConstant.THUMB_WRITE_BEHIND_JOURNAL_KEY, ScanOptions.scanOptions().count(SCAN_COUNT).build())) {
+            while (cursor.hasNext()) {
+                Map.Entry<Object, Object> entry = cursor.next();
+                Entry parsed = parse(entry.getKey().toString(), entry.getValue().toString());
+                if (parsed == null) {
+                    log.warn("跳过无法识别的延迟写入日志: field={}, value={}", entry.getKey(), entry.getValue());
+                    continue;
+                }
+                if (parsed.thumb().getCreateTime().getTime() < before) {
+                    entries.add(parsed);
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * 解析 {+|-}{userId}:{blogId}:{写入时间毫秒}
+     */
+    private static Entry parse(String field, String value) {
+        if (value.isEmpty() || (value.charAt(0) != '+' && value.charAt(0) != '-')) {
+            return null;
+        }
+        String[] parts = value.substring(1).split(":");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            Thumb thumb = new Thumb();
+            thumb.setId(Long.parseLong(field));
+            thumb.setUserId(Long.parseLong(parts[0]));
+            thumb.setBlogId(Long.parseLong(parts[1]));
+            thumb.setCreateTime(new Date(Long.parseLong(parts[2])));
+            return new Entry(thumb, value.charAt(0) == '+');
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
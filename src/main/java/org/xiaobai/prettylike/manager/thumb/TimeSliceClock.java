@@ -0,0 +1,70 @@
+package org.xiaobai.prettylike.manager.thumb;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.xiaobai.prettylike.config.ThumbSyncProperties;
+
+import java.time.Clock;
+
+/**
+ * 临时点赞数据的时间片
+ * 时间片 id 为时间片开始时刻的 epoch 秒，按 thumb.sync.slice-width 对齐：
+ * 1.id 带日期，不同日期的同一时刻不会冲突；id 可以直接比较先后，修改时间片宽度后仍然有序
+ * 2.写入方使用 currentSlice()，同步任务只处理 lastClosedSlice() 及之前的时间片，
+ *   时间片结束后再等待 thumb.sync.slice-grace，避免与跨越边界的写入并发
+ */
+@Component
+public class TimeSliceClock {
+
+    private final Clock clock;
+
+    private final long widthSeconds;
+
+    private final long graceMillis;
+
+    @Autowired
+    public TimeSliceClock(ThumbSyncProperties thumbSyncProperties) {
+        this(thumbSyncProperties, Clock.systemUTC());
+    }
+
+    TimeSliceClock(ThumbSyncProperties thumbSyncProperties, Clock clock) {
+        this.clock = clock;
+        this.widthSeconds = thumbSyncProperties.getSliceWidth().toSeconds();
+        this.graceMillis = thumbSyncProperties.getSliceGrace().toMillis();
+        if (widthSeconds < 1 || thumbSyncProperties.getSliceWidth().toMillis() % 1000 != 0) {
+            throw new RuntimeException("时间片宽度必须为整数秒");
+        }
+        if (graceMillis < 0) {
+            throw new RuntimeException("时间片等待时间不能为负数");
+        }
+    }
+
+    /**
+     * 当前时间所在的时间片
+     */
+    public long currentSlice() {
+        return align(Math.floorDiv(clock.millis(), 1000));
+    }
+
+    /**
+     * 已经结束（包括等待时间）的最近一个时间片
+     */
+    public long lastClosedSlice() {
+        return align(Math.floorDiv(clock.millis() - graceMillis, 1000)) - widthSeconds;
+    }
+
+    /**
+     * 下一个时间片，slice 不是当前宽度下的时间片 id 时（修改过宽度）从其所在的时间片算起
+     */
+    public long nextSlice(long slice) {
+        return align(slice) + widthSeconds;
+    }
+
+    public long widthSeconds() {
+        return widthSeconds;
+    }
+
+    private long align(long epochSecond) {
+        return epochSecond - Math.floorMod(epochSecond, widthSeconds);
+    }
+}
@@ -0,0 +1,393 @@
+package org.xiaobai.prettylike.manager.thumb;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.xiaobai.prettylike.common.constant.RedisLuaScriptConstant;
+import org.xiaobai.prettylike.common.constant.ThumbConstant;
+import org.xiaobai.prettylike.common.enums.LuaStatusEnum;
+import org.xiaobai.prettylike.mapper.ThumbMapper;
+import org.xiaobai.prettylike.model.entity.Thumb;
+import org.xiaobai.prettylike.utils.RedisKeyUtil;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 用户点赞记录的 Redis 存储
+ * 每个用户的点赞记录按 blogId % {@link ThumbConstant#USER_THUMB_BUCKETS} 拆分为多个 hash，避免单个用户的点赞记录成为大 key：
+ * 1.分桶存在时包含标记字段 {@link ThumbConstant#USER_THUMB_BUCKET_MARKER}，表示分桶已完整加载，不存在的字段即未点赞
+ * 2.分桶每次写入时续期，长期未写入的分桶过期后只保留在数据库中，下一次访问时再整体加载
+ * 3.所有写操作通过 Lua 脚本执行，分桶不存在时返回 {@link LuaStatusEnum#COLD}，加载后重试一次
+ * 4.值统一为十进制 long（thumbId 或点赞标记 1），通过 thumbRedisTemplate 直接读写，不经过 Jackson
+ * 5.分桶不在 Redis 中时视为未知而不是未点赞，读写前先从数据库加载；同一分桶的并发加载合并为一次查询，
+ *   空分桶同样保留标记字段
+ * 6.数据库落后于 Redis：MQ 模式要等消费者写入，Redis 模式要等临时点赞数据同步。这段时间内重新加载的分桶不包含尚未写入数据库的点赞，
+ *   取消点赞会返回未点赞，再次点赞会重复计数。写入时分桶续期，过期时间远大于同步延迟，过期不会落在这段时间内；
+ *   但分桶不能被淘汰，Redis 需使用 maxmemory-policy noeviction（分桶都带过期时间，volatile-* 策略同样会淘汰分桶）
+ */
+@Slf4j
+@Component
+public class UserThumbStore {
+
+    private static final long LOAD_WAIT_SECONDS = 5;
+
+    @Resource
+    private RedisTemplate<String, Long> thumbRedisTemplate;
+
+    @Resource
+    private ThumbMapper thumbMapper;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 正在从数据库加载的分桶，key 为分桶的 Redis key
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> loading = new ConcurrentHashMap<>();
+
+    private Counter loadCounter;
+    private Counter coalescedCounter;
+
+    @PostConstruct
+    public void init() {
+        loadCounter = Counter.builder("thumb.bucket.loads")
+                .description("Database queries that loaded cold like buckets into Redis")
+                .register(meterRegistry);
+        coalescedCounter = Counter.builder("thumb.bucket.loads.coalesced")
+                .description("Cold like buckets that waited for a load already in flight instead of querying the database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 查询点赞记录
+     * @return 点赞记录值，未点赞时返回 null
+     */
+    public Long get(long userId, long blogId) {
+        String key = RedisKeyUtil.getUserThumbKey(userId, blogId);
+        String field = Long.toString(blogId);
+        List<Long> values = thumbRedisTemplate.<String, Long>opsForHash()
+                .multiGet(key, List.of(field, ThumbConstant.USER_THUMB_BUCKET_MARKER));
+        if (values.get(1) != null) {
+            return values.get(0);
+        }
+        loadBuckets(userId, List.of(RedisKeyUtil.getUserThumbBucket(blogId)));
+        return thumbRedisTemplate.<String, Long>opsForHash().get(key, field);
+    }
+
+    /**
+     * 批量查询同一用户的点赞记录，每个分桶一次 HMGET，通过管道一次发送
+     * 不在 Redis 中的分桶通过一次数据库查询一起加载，再重新读取这些分桶
+     * @return 与 blogIds 一一对应的点赞记录值，未点赞的位置为 null
+     */
+    public List<Long> multiGet(long userId, List<Long> blogIds) {
+        Map<Integer, List<Integer>> positionsByBucket = new LinkedHashMap<>();
+        for (int i = 0; i < blogIds.size(); i++) {
+            positionsByBucket.computeIfAbsent(RedisKeyUtil.getUserThumbBucket(blogIds.get(i)), k -> new ArrayList<>())
+                    .add(i);
+        }
+        List<Long> values = new ArrayList<>(Collections.nCopies(blogIds.size(), null));
+        List<Integer> coldBuckets = readBuckets(userId, blogIds, positionsByBucket, positionsByBucket.keySet(), values);
+        if (!coldBuckets.isEmpty()) {
+            loadBuckets(userId, coldBuckets);
+            readBuckets(userId, blogIds, positionsByBucket, coldBuckets, values);
+        }
+        return values;
+    }
+
+    /**
+     * 通过管道读取指定分桶中的点赞记录，写入 values 中对应的位置
+     * @return 不在 Redis 中的分桶
+     */
+    private List<Integer> readBuckets(long userId, List<Long> blogIds, Map<Integer, List<Integer>> positionsByBucket,
+                                      Collection<Integer> buckets, List<Long> values) {
+        List<Integer> bucketList = new ArrayList<>(buckets);
+        List<Object> results = thumbRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Long> ops = (RedisOperations<String, Long>) operations;
+                for (Integer bucket : bucketList) {
+                    ops.<String, Long>opsForHash().multiGet(RedisKeyUtil.getUserThumbBucketKey(userId, bucket),
+                            fields(blogIds, positionsByBucket.get(bucket)));
+                }
+                return null;
+            }
+        });
+
+        List<Integer> coldBuckets = new ArrayList<>();
+        for (int b = 0; b < bucketList.size(); b++) {
+            int bucket = bucketList.get(b);
+            List<Integer> positions = positionsByBucket.get(bucket);
+            @SuppressWarnings("unchecked")
+            List<Long> bucketValues = (List<Long>) results.get(b);
+            // 最后一个字段为标记字段，为空说明分桶不在 Redis 中
+            if (bucketValues.get(positions.size()) == null) {
+                coldBuckets.add(bucket);
+                continue;
+            }
+            for (int i = 0; i < positions.size(); i++) {
+                values.set(positions.get(i), bucketValues.get(i));
+            }
+        }
+        return coldBuckets;
+    }
+
+    /**
+     * 写入点赞记录
+     */
+    public void put(long userId, long blogId, long value) {
+        execute(RedisLuaScriptConstant.USER_THUMB_PUT_SCRIPT, userId, blogId,
+                List.of(RedisKeyUtil.getUserThumbKey(userId, blogId)), blogId, value);
+    }
+
+    /**
+     * 删除点赞记录
+     */
+    public void delete(long userId, long blogId) {
+        execute(RedisLuaScriptConstant.USER_THUMB_DELETE_SCRIPT, userId, blogId,
+                List.of(RedisKeyUtil.getUserThumbKey(userId, blogId)), blogId);
+    }
+
+    /**
+     * 写入点赞记录，同一个 Lua 脚本中记录待插入的延迟写入日志
+     * 分桶加载后仍不在 Redis 中时抛出异常，日志没有写入，不能继续写入缓冲
+     */
+    public void putJournaled(long userId, long blogId, long thumbId) {
+        requireSuccess(execute(RedisLuaScriptConstant.USER_THUMB_PUT_JOURNAL_SCRIPT, userId, blogId,
+                List.of(RedisKeyUtil.getUserThumbKey(userId, blogId), ThumbConstant.THUMB_WRITE_BEHIND_JOURNAL_KEY),
+                blogId, thumbId, userId, System.currentTimeMillis()));
+    }
+
+    /**
+     * 删除点赞记录，同一个 Lua 脚本中记录待删除的延迟写入日志
+     */
+    public void deleteJournaled(long userId, long blogId, long thumbId) {
+        requireSuccess(execute(RedisLuaScriptConstant.USER_THUMB_DELETE_JOURNAL_SCRIPT, userId, blogId,
+                List.of(RedisKeyUtil.getUserThumbKey(userId, blogId), ThumbConstant.THUMB_WRITE_BEHIND_JOURNAL_KEY),
+                blogId, thumbId, userId, System.currentTimeMillis()));
+    }
+
+    private static void requireSuccess(Long result) {
+        if (result == null || result != LuaStatusEnum.SUCCESS.getValue()) {
+            throw new RuntimeException("点赞记录写入失败，请稍后重试");
+        }
+    }
+
+    /**
+     * 执行操作用户点赞分桶的 Lua 脚本，分桶不在 Redis 中时从数据库加载后重试
+     * 分桶过期时间由本方法追加为最后一个参数
+     * @param blogId 用于定位分桶
+     * @return 脚本返回值
+     */
+    public Long execute(RedisScript<Long> script, long userId, long blogId, List<String> keys, Object... args) {
+        Object[] argv = Arrays.copyOf(args, args.length + 1);
+        argv[args.length] = ThumbConstant.USER_THUMB_BUCKET_TTL_SECONDS;
+        Long result = thumbRedisTemplate.execute(script, keys, argv);
+        if (result != null && result == LuaStatusEnum.COLD.getValue()) {
+            loadBuckets(userId, List.of(RedisKeyUtil.getUserThumbBucket(blogId)));
+            result = thumbRedisTemplate.execute(script, keys, argv);
+        }
+        return result;
+    }
+
+    /**
+     * 批量执行操作同一用户多个分桶的 Lua 脚本，所有博客在一次 EVAL 中处理，分桶不在 Redis 中的博客加载后重试一次
+     * 脚本参数依次为 leadingArgs、每篇博客的（分桶键在 KEYS 中的下标, 博客 ID）、分桶过期时间
+     * @param leadingKeys 排在分桶键之前的 key
+     * @return 与 blogIds 一一对应的脚本返回值
+     */
+    @SuppressWarnings("rawtypes")
+    public List<Long> executeBatch(RedisScript<List> script, long userId, List<Long> blogIds,
+                                   List<String> leadingKeys, Object... leadingArgs) {
+        List<Long> results = runBatch(script, userId, blogIds, leadingKeys, leadingArgs);
+        List<Integer> coldPositions = new ArrayList<>();
+        Set<Integer> coldBuckets = new LinkedHashSet<>();
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == LuaStatusEnum.COLD.getValue()) {
+                coldPositions.add(i);
+                coldBuckets.add(RedisKeyUtil.getUserThumbBucket(blogIds.get(i)));
+            }
+        }
+        if (coldPositions.isEmpty()) {
+            return results;
+        }
+        loadBuckets(userId, coldBuckets);
+        List<Long> retryResults = runBatch(script, userId, coldPositions.stream().map(blogIds::get).toList(),
+                leadingKeys, leadingArgs);
+        for (int i = 0; i < coldPositions.size(); i++) {
+            results.set(coldPositions.get(i), retryResults.get(i));
+        }
+        return results;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private List<Long> runBatch(RedisScript<List> script, long userId, List<Long> blogIds,
+                                List<String> leadingKeys, Object... leadingArgs) {
+        List<String> keys = new ArrayList<>(leadingKeys);
+        Map<Integer, Long> keyIndexByBucket = new HashMap<>();
+        List<Object> argv = new ArrayList<>(Arrays.asList(leadingArgs));
+        for (Long blogId : blogIds) {
+            // Lua 中 KEYS 下标从 1 开始
+            long keyIndex = keyIndexByBucket.computeIfAbsent(RedisKeyUtil.getUserThumbBucket(blogId), bucket -> {
+                keys.add(RedisKeyUtil.getUserThumbBucketKey(userId, bucket));
+                return (long) keys.size();
+            });
+            argv.add(keyIndex);
+            argv.add(blogId);
+        }
+        argv.add(ThumbConstant.USER_THUMB_BUCKET_TTL_SECONDS);
+        List<Long> results = thumbRedisTemplate.execute(script, keys, argv.toArray());
+        if (results == null || results.size() != blogIds.size()) {
+            throw new RuntimeException("批量执行点赞脚本失败");
+        }
+        return new ArrayList<>(results);
+    }
+
+    /**
+     * Redis 中用户点赞过的博客，只包含未过期的分桶
+     */
+    public Set<Long> cachedBlogIds(long userId) {
+        List<Object> results = thumbRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Long> ops = (RedisOperations<String, Long>) operations;
+                for (int bucket = 0; bucket < ThumbConstant.USER_THUMB_BUCKETS; bucket++) {
+                    ops.opsForHash().keys(RedisKeyUtil.getUserThumbBucketKey(userId, bucket));
+                }
+                return null;
+            }
+        });
+        Set<Long> blogIds = new HashSet<>();
+        for (Object fields : results) {
+            blogIds.addAll(toBlogIds((Collection<?>) fields));
+        }
+        return blogIds;
+    }
+
+    /**
+     * 分桶中的博客 id，跳过标记字段
+     */
+    public static Set<Long> toBlogIds(Collection<?> fields) {
+        Set<Long> blogIds = new HashSet<>();
+        for (Object field : fields) {
+            if (!ThumbConstant.USER_THUMB_BUCKET_MARKER.equals(field.toString())) {
+                blogIds.add(Long.valueOf(field.toString()));
+            }
+        }
+        return blogIds;
+    }
+
+    /**
+     * 从数据库加载分桶，分桶已存在时不覆盖
+     * 同一分桶同时只有一个线程查询数据库，其他线程等待其加载完成；本线程负责的分桶通过一次查询一起加载
+     * 加载的是数据库中的点赞，不包含尚未同步到数据库的点赞，见类注释第 6 点
+     */
+    public void loadBuckets(long userId, Collection<Integer> buckets) {
+        Map<Integer, CompletableFuture<Void>> owned = new LinkedHashMap<>();
+        List<CompletableFuture<Void>> waiting = new ArrayList<>();
+        for (Integer bucket : buckets) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            CompletableFuture<Void> inflight = loading.putIfAbsent(RedisKeyUtil.getUserThumbBucketKey(userId, bucket), future);
+            if (inflight == null) {
+                owned.put(bucket, future);
+            } else {
+                waiting.add(inflight);
+            }
+        }
+
+        if (!owned.isEmpty()) {
+            try {
+                doLoadBuckets(userId, owned.keySet());
+                owned.values().forEach(future -> future.complete(null));
+            } catch (RuntimeException e) {
+                owned.values().forEach(future -> future.completeExceptionally(e));
+                throw e;
+            } finally {
+                owned.forEach((bucket, future) -> loading.remove(RedisKeyUtil.getUserThumbBucketKey(userId, bucket), future));
+            }
+        }
+
+        if (!waiting.isEmpty()) {
+            coalescedCounter.increment(waiting.size());
+            for (CompletableFuture<Void> future : waiting) {
+                try {
+                    future.get(LOAD_WAIT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("加载用户点赞记录被中断");
+                } catch (ExecutionException | TimeoutException e) {
+                    log.error("等待加载用户点赞记录失败: userId={}", userId, e);
+                    throw new RuntimeException("加载用户点赞记录失败");
+                }
+            }
+        }
+    }
+
+    private void doLoadBuckets(long userId, Collection<Integer> buckets) {
+        Map<Integer, List<Object>> argsByBucket = new LinkedHashMap<>();
+        for (Integer bucket : buckets) {
+            List<Object> args = new ArrayList<>();
+            args.add(ThumbConstant.USER_THUMB_BUCKET_TTL_SECONDS);
+            argsByBucket.put(bucket, args);
+        }
+        List<Thumb> thumbList = thumbMapper.selectList(bucketsQuery(userId, buckets).select(Thumb::getId, Thumb::getBlogId));
+        loadCounter.increment();
+        for (Thumb thumb : thumbList) {
+            List<Object> args = argsByBucket.get(RedisKeyUtil.getUserThumbBucket(thumb.getBlogId()));
+            if (args != null) {
+                args.add(thumb.getBlogId());
+                args.add(thumb.getId());
+            }
+        }
+        // 没有点赞记录的分桶也会写入标记字段，之后的查询不再访问数据库
+        argsByBucket.forEach((bucket, args) -> thumbRedisTemplate.execute(RedisLuaScriptConstant.USER_THUMB_LOAD_SCRIPT,
+                List.of(RedisKeyUtil.getUserThumbBucketKey(userId, bucket)), args.toArray()));
+        log.debug("从数据库加载用户点赞分桶: userId={}, buckets={}, size={}", userId, buckets, thumbList.size());
+    }
+
+    /**
+     * 数据库中属于某个分桶的点赞记录
+     */
+    public static LambdaQueryWrapper<Thumb> bucketQuery(long userId, int bucket) {
+        return bucketsQuery(userId, List.of(bucket));
+    }
+
+    /**
+     * 数据库中属于指定分桶的点赞记录，包含全部分桶时即该用户的所有点赞记录
+     */
+    public static LambdaQueryWrapper<Thumb> bucketsQuery(long userId, Collection<Integer> buckets) {
+        LambdaQueryWrapper<Thumb> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(Thumb::getUserId, userId);
+        if (buckets.size() < ThumbConstant.USER_THUMB_BUCKETS) {
+            Object[] params = new Object[buckets.size() + 1];
+            StringJoiner placeholders = new StringJoiner(", ");
+            params[0] = ThumbConstant.USER_THUMB_BUCKETS;
+            int i = 1;
+            for (Integer bucket : buckets) {
+                placeholders.add("{" + i + "}");
+                params[i++] = bucket;
+            }
+            wrapper.apply("blogId % {0} IN (" + placeholders + ")", params);
+        }
+        return wrapper;
+    }
+
+    private static List<String> fields(List<Long> blogIds, List<Integer> positions) {
+        List<String> fields = new ArrayList<>(positions.size() + 1);
+        for (Integer position : positions) {
+            fields.add(blogIds.get(position).toString());
+        }
+        fields.add(ThumbConstant.USER_THUMB_BUCKET_MARKER);
+        return fields;
+    }
+}
@@ -1,10 +1,19 @@
 package org.xiaobai.prettylike.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
 import org.xiaobai.prettylike.model.entity.Thumb;
 
+import java.util.List;
+
 /**
  * 点赞表 Mapper 接口
  */
 public interface ThumbMapper extends BaseMapper<Thumb> {
+
+    /**
+     * 批量插入点赞记录，(userId, blogId) 已存在的记录跳过，需预先设置 id；未设置 createTime 时使用当前时间
+     * @return 实际插入的行数
+     */
+    int insertIgnoreBatch(@Param("thumbList") List<Thumb> thumbList);
 }
@@ -0,0 +1,33 @@
+package org.xiaobai.prettylike.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.xiaobai.prettylike.model.entity.ThumbSyncLedger;
+
+/**
+ * 临时点赞数据同步台账 Mapper
+ */
+public interface ThumbSyncLedgerMapper extends BaseMapper<ThumbSyncLedger> {
+
+    /**
+     * 时间片的台账不存在时创建
+     */
+    int insertIfAbsent(@Param("sliceId") String sliceId);
+
+    /**
+     * 写入一批点赞数据后推进台账，台账游标不是 fromCursor（已被其他任务推进）或已完成时不更新
+     * @return 更新的行数，0 表示推进失败，调用方需回滚本批写入
+     */
+    int advance(@Param("sliceId") String sliceId,
+                @Param("fromCursor") String fromCursor,
+                @Param("toCursor") String toCursor,
+                @Param("entries") long entries,
+                @Param("checksum") long checksum,
+                @Param("finished") boolean finished);
+
+    /**
+     * 标记博客点赞数增量已写入，需与点赞数更新在同一事务中执行
+     * @return 更新的行数，0 表示已被写入过
+     */
+    int markCountsApplied(@Param("sliceId") String sliceId);
+}
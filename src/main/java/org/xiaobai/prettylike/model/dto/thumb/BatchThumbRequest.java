@@ -0,0 +1,13 @@
+package org.xiaobai.prettylike.model.dto.thumb;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量点赞请求
+ */
+@Data
+public class BatchThumbRequest {
+    private List<Long> blogIds;
+}
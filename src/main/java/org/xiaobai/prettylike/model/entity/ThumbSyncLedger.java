@@ -0,0 +1,57 @@
+package org.xiaobai.prettylike.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 临时点赞数据同步台账
+ */
+@Data
+@TableName(value ="thumb_sync_ledger")
+public class ThumbSyncLedger {
+
+    /**
+     * 时间片 id
+     */
+    @TableId(type = IdType.INPUT)
+    private String sliceId;
+
+    /**
+     * 已写入部分之后的 HSCAN 游标
+     */
+    private String scanCursor;
+
+    /**
+     * 已写入的临时点赞记录数，完成后与剩余的临时数据比对
+     */
+    private Long appliedEntries;
+
+    /**
+     * 已写入记录的校验和（各记录 CRC32 之和）
+     */
+    private Long checksum;
+
+    /**
+     * 是否已全部写入
+     */
+    private Boolean finished;
+
+    /**
+     * 博客点赞数增量是否已写入
+     */
+    private Boolean countsApplied;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    /**
+     * 更新时间
+     */
+    private Date updateTime;
+}
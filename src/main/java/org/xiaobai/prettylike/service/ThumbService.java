@@ -2,9 +2,12 @@ package org.xiaobai.prettylike.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
 import jakarta.servlet.http.HttpServletRequest;
+import org.xiaobai.prettylike.model.dto.thumb.BatchThumbRequest;
 import org.xiaobai.prettylike.model.dto.thumb.DoThumbRequest;
 import org.xiaobai.prettylike.model.entity.Thumb;
 
+import java.util.Map;
+
 
 /**
  * 点赞表 Service 接口
@@ -13,7 +16,17 @@ public interface ThumbService extends IService<Thumb> {
 
     Boolean doThumb(DoThumbRequest doThumbRequest, HttpServletRequest request);
 
+    /**
+     * 批量点赞，已点赞的博客跳过
+     * @return 博客 ID -> 本次是否点赞成功，顺序与请求一致（重复的博客 ID 只保留一个）
+     */
+    Map<Long, Boolean> doThumbBatch(BatchThumbRequest batchThumbRequest, HttpServletRequest request);
+
     Boolean undoThumb(DoThumbRequest doThumbRequest, HttpServletRequest request);
 
+    /**
+     * 用户是否点赞过博客，用于展示
+     * 可能经过布隆过滤器，其他实例刚写入的点赞可能返回 false，点赞 / 取消点赞的判断不能依赖该方法
+     */
     Boolean hasThumb(Long blogId, Long userId);
 }
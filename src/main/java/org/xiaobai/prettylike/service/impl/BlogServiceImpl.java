@@ -6,8 +6,9 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.context.annotation.Lazy;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
+import org.xiaobai.prettylike.manager.thumb.ThumbFilter;
+import org.xiaobai.prettylike.manager.thumb.UserThumbStore;
 import org.xiaobai.prettylike.mapper.BlogMapper;
 import org.xiaobai.prettylike.model.entity.Blog;
 import org.xiaobai.prettylike.model.entity.User;
@@ -15,7 +16,6 @@ import org.xiaobai.prettylike.model.vo.BlogVO;
 import org.xiaobai.prettylike.service.BlogService;
 import org.xiaobai.prettylike.service.ThumbService;
 import org.xiaobai.prettylike.service.UserService;
-import org.xiaobai.prettylike.utils.RedisKeyUtil;
 
 import java.util.HashMap;
 import java.util.List;
@@ -36,7 +36,10 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements Bl
     private ThumbService thumbService;
 
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private UserThumbStore userThumbStore;
+
+    @Resource
+    private ThumbFilter thumbFilter;
 
     @Override
     public BlogVO getBlogVOById(long blogId, HttpServletRequest request) {
@@ -63,16 +66,21 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements Bl
         User loginUser = userService.getLoginUser(request);
         Map<Long, Boolean> blogIdHasThumbMap = new HashMap<>();
         if (ObjUtil.isNotEmpty(loginUser)) {
-            List<Object> blogIdList = blogList.stream().map(blog -> blog.getId().toString()).collect(Collectors.toList());
+            // 过滤器判定一定未点赞的博客不再查询 Redis
+            List<Long> blogIdList = blogList.stream()
+                    .map(Blog::getId)
+                    .filter(blogId -> thumbFilter.mightHaveThumb(loginUser.getId(), blogId))
+                    .collect(Collectors.toList());
 
-            // 获取点赞
-            List<Object> thumbList = redisTemplate.opsForHash()
-                    .multiGet(RedisKeyUtil.getUserThumbKey(loginUser.getId()), blogIdList);
-            for (int i = 0; i < thumbList.size(); i++) {
-                if (thumbList.get(i) == null) {
-                    continue;
+            // 获取点赞，按分桶批量查询
+            if (!blogIdList.isEmpty()) {
+                List<Long> thumbList = userThumbStore.multiGet(loginUser.getId(), blogIdList);
+                for (int i = 0; i < thumbList.size(); i++) {
+                    if (thumbList.get(i) == null) {
+                        continue;
+                    }
+                    blogIdHasThumbMap.put(blogIdList.get(i), true);
                 }
-                blogIdHasThumbMap.put(Long.valueOf(blogIdList.get(i).toString()), true);
             }
         }
         return blogList.stream()
@@ -1,14 +1,29 @@
 package org.xiaobai.prettylike.service.impl;
 
+import cn.hutool.core.collection.ListUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import jakarta.annotation.PreDestroy;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.redis.core.RedisTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.support.TransactionTemplate;
 import org.xiaobai.prettylike.common.constant.ThumbConstant;
+import org.xiaobai.prettylike.config.ThumbWriteBehindProperties;
 import org.xiaobai.prettylike.manager.cache.CacheManager;
+import org.xiaobai.prettylike.manager.lock.LockManager;
+import org.xiaobai.prettylike.manager.thumb.ThumbFilter;
+import org.xiaobai.prettylike.manager.thumb.ThumbWriteBehindBuffer;
+import org.xiaobai.prettylike.manager.thumb.ThumbWriteBehindJournal;
+import org.xiaobai.prettylike.manager.thumb.UserThumbStore;
+import org.xiaobai.prettylike.mapper.BlogMapper;
 import org.xiaobai.prettylike.mapper.ThumbMapper;
+import org.xiaobai.prettylike.model.dto.thumb.BatchThumbRequest;
 import org.xiaobai.prettylike.model.dto.thumb.DoThumbRequest;
 import org.xiaobai.prettylike.model.entity.Blog;
 import org.xiaobai.prettylike.model.entity.Thumb;
@@ -16,10 +31,23 @@ import org.xiaobai.prettylike.model.entity.User;
 import org.xiaobai.prettylike.service.BlogService;
 import org.xiaobai.prettylike.service.ThumbService;
 import org.xiaobai.prettylike.service.UserService;
+import org.xiaobai.prettylike.utils.RedisKeyUtil;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 /**
  * 点赞表 Service 实现类
  */
+@Slf4j
 @Service("thumbServiceLocalCache")
 @RequiredArgsConstructor
 public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb> implements ThumbService {
@@ -28,12 +56,42 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb> implements
 
     private final BlogService blogService;
 
+    private final BlogMapper blogMapper;
+
     private final TransactionTemplate transactionTemplate;
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final UserThumbStore userThumbStore;
 
     private final CacheManager cacheManager;
 
+    private final LockManager lockManager;
+
+    private final ThumbFilter thumbFilter;
+
+    private final ThumbWriteBehindProperties writeBehindProperties;
+
+    private final ThumbWriteBehindBuffer writeBehindBuffer;
+
+    private final ThumbWriteBehindJournal writeBehindJournal;
+
+    /**
+     * 保证同一时间只有一个线程在写入数据库，定时写入与达到批量大小触发的写入互斥
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /**
+     * 每条插入语句最多写入的点赞记录数
+     */
+    private static final int INSERT_BATCH_SIZE = 500;
+
+    /**
+     * 延迟写入模式下已确认存在的博客，只缓存存在的结果，避免每次点赞都查询数据库
+     */
+    private final Cache<Long, Boolean> existingBlogs = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
     @Override
     public Boolean doThumb(DoThumbRequest doThumbRequest, HttpServletRequest request) {
         if (doThumbRequest == null || doThumbRequest.getBlogId() == null) {
@@ -41,40 +99,70 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb> implements
         }
         User loginUser = userService.getLoginUser(request);
         // 加锁
-        synchronized (loginUser.getId().toString().intern()) {
+        return lockManager.executeWithLock(RedisKeyUtil.getUserThumbLockKey(loginUser.getId()),
+                () -> doThumbLocked(loginUser.getId(), doThumbRequest.getBlogId()));
+    }
 
-            // 编程式事务
-            return transactionTemplate.execute(status -> {
-                Long blogId = doThumbRequest.getBlogId();
-                Boolean exists = this.hasThumb(blogId, loginUser.getId());
-                if (exists) {
-                    throw new RuntimeException("用户已点赞");
-                }
+    /**
+     * 批量点赞：只加一次用户锁，已点赞的博客跳过，其余逐篇点赞
+     */
+    @Override
+    public Map<Long, Boolean> doThumbBatch(BatchThumbRequest batchThumbRequest, HttpServletRequest request) {
+        if (batchThumbRequest == null || batchThumbRequest.getBlogIds() == null || batchThumbRequest.getBlogIds().isEmpty()) {
+            throw new RuntimeException("参数错误");
+        }
+        List<Long> blogIds = batchThumbRequest.getBlogIds().stream().filter(Objects::nonNull).distinct().toList();
+        if (blogIds.isEmpty()) {
+            throw new RuntimeException("参数错误");
+        }
+        if (blogIds.size() > ThumbConstant.MAX_BATCH_THUMB_SIZE) {
+            throw new RuntimeException("批量点赞数量超过上限");
+        }
+        User loginUser = userService.getLoginUser(request);
+        return lockManager.executeWithLock(RedisKeyUtil.getUserThumbLockKey(loginUser.getId()), () -> {
+            Map<Long, Boolean> resultMap = new LinkedHashMap<>();
+            for (Long blogId : blogIds) {
+                resultMap.put(blogId, !thumbExists(loginUser.getId(), blogId) && doThumbLocked(loginUser.getId(), blogId));
+            }
+            return resultMap;
+        });
+    }
 
-                boolean update = blogService.lambdaUpdate()
-                        .eq(Blog::getId, blogId)
-                        .setSql("thumbCount = thumbCount + 1")
-                        .update();
+    /**
+     * 点赞，调用方需持有用户点赞锁
+     */
+    private boolean doThumbLocked(Long userId, Long blogId) {
+        if (writeBehindProperties.isEnabled()) {
+            return doThumbWriteBehind(userId, blogId);
+        }
+        // 编程式事务
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (thumbExists(userId, blogId)) {
+                throw new RuntimeException("用户已点赞");
+            }
 
-                Thumb thumb = new Thumb();
-                thumb.setUserId(loginUser.getId());
-                thumb.setBlogId(blogId);
-                // 更新成功才执行
-                boolean success = update && this.save(thumb);
+            boolean update = blogService.lambdaUpdate()
+                    .eq(Blog::getId, blogId)
+                    .setSql("thumbCount = thumbCount + 1")
+                    .update();
 
-                // 点赞记录存入 Redis
-                if (success) {
-                    String hashKey = ThumbConstant.USER_THUMB_KEY_PREFIX + loginUser.getId();
-                    String fieldKey = blogId.toString();
-                    Long realThumbId = thumb.getId();
-                    redisTemplate.opsForHash().put(hashKey, fieldKey, realThumbId);
-                    cacheManager.putIfPresent(hashKey, fieldKey, realThumbId);
-                }
+            Thumb thumb = new Thumb();
+            thumb.setUserId(userId);
+            thumb.setBlogId(blogId);
+            // 更新成功才执行
+            boolean success = update && this.save(thumb);
 
-                // 返回更新结果
-                return success;
-            });
-        }
+            // 点赞记录存入 Redis
+            if (success) {
+                Long realThumbId = thumb.getId();
+                userThumbStore.put(userId, blogId, realThumbId);
+                cacheManager.putThumbIfPresent(userId, blogId, realThumbId);
+                thumbFilter.recordThumb(userId, blogId);
+            }
+
+            // 返回更新结果
+            return success;
+        }));
     }
 
     @Override
@@ -84,14 +172,16 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb> implements
         }
         User loginUser = userService.getLoginUser(request);
         // 加锁
-        synchronized (loginUser.getId().toString().intern()) {
-
+        return lockManager.executeWithLock(RedisKeyUtil.getUserThumbLockKey(loginUser.getId()), () -> {
+            if (writeBehindProperties.isEnabled()) {
+                return undoThumbWriteBehind(loginUser.getId(), doThumbRequest.getBlogId());
+            }
             // 编程式事务
             return transactionTemplate.execute(status -> {
                 Long blogId = doThumbRequest.getBlogId();
                 // 查询是否点赞
-                Object thumbIdObj = cacheManager.get(ThumbConstant.USER_THUMB_KEY_PREFIX + loginUser.getId(), blogId.toString());
-                if (thumbIdObj == null || thumbIdObj.equals(ThumbConstant.UN_THUMB_CONSTANT)) {
+                long thumbId = cacheManager.getThumb(loginUser.getId(), blogId);
+                if (thumbId == CacheManager.NOT_FOUND || thumbId == ThumbConstant.UN_THUMB_CONSTANT) {
                     throw new RuntimeException("用户未点赞");
                 }
                 boolean update = blogService.lambdaUpdate()
@@ -99,27 +189,256 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb> implements
                         .setSql("thumbCount = thumbCount - 1")
                         .update();
 
-                boolean success = update && this.removeById((Long) thumbIdObj);
+                boolean success = update && this.removeById(thumbId);
 
                 // 点赞记录从 Redis 删除
                 if (success) {
-                    String hashKey = ThumbConstant.USER_THUMB_KEY_PREFIX + loginUser.getId();
-                    String fieldKey = blogId.toString();
-                    redisTemplate.opsForHash().delete(hashKey, fieldKey);
-                    cacheManager.putIfPresent(hashKey, fieldKey, ThumbConstant.UN_THUMB_CONSTANT);
+                    userThumbStore.delete(loginUser.getId(), blogId);
+                    cacheManager.putThumbIfPresent(loginUser.getId(), blogId, ThumbConstant.UN_THUMB_CONSTANT);
                 }
                 return success;
             });
-        }
+        });
     }
 
     @Override
     public Boolean hasThumb(Long blogId, Long userId) {
-        Object thumbIdObj = cacheManager.get(ThumbConstant.USER_THUMB_KEY_PREFIX + userId, blogId.toString());
-        if (thumbIdObj == null) {
+        if (!thumbFilter.mightHaveThumb(userId, blogId)) {
+            return false;
+        }
+        return thumbExists(userId, blogId);
+    }
+
+    /**
+     * 点赞前的重复检查，不经过布隆过滤器：过滤器依赖不保证送达的广播同步，可能漏掉其他实例的点赞
+     */
+    private boolean thumbExists(long userId, long blogId) {
+        long thumbId = cacheManager.getThumb(userId, blogId);
+        return thumbId != CacheManager.NOT_FOUND && thumbId != ThumbConstant.UN_THUMB_CONSTANT;
+    }
+
+    /**
+     * 延迟写入模式下点赞：点赞记录预先分配 id，立即写入 Redis 和本地缓存，数据库由 flushWriteBehind() 批量写入
+     * 与同步写入一样，博客不存在时返回 false
+     */
+    private boolean doThumbWriteBehind(Long userId, Long blogId) {
+        if (thumbExists(userId, blogId)) {
+            throw new RuntimeException("用户已点赞");
+        }
+        if (!blogExists(blogId)) {
             return false;
         }
-        Long thumbId = (Long) thumbIdObj;
-        return !thumbId.equals(ThumbConstant.UN_THUMB_CONSTANT);
+        Thumb thumb = new Thumb();
+        thumb.setId(IdWorker.getId());
+        thumb.setUserId(userId);
+        thumb.setBlogId(blogId);
+        thumb.setCreateTime(new Date());
+
+        userThumbStore.putJournaled(userId, blogId, thumb.getId());
+        cacheManager.putThumbIfPresent(userId, blogId, thumb.getId());
+        thumbFilter.recordThumb(userId, blogId);
+        if (writeBehindBuffer.addThumb(thumb) >= writeBehindProperties.getFlushSize()) {
+            Thread.startVirtualThread(this::flushWriteBehind);
+        }
+        return true;
+    }
+
+    private boolean blogExists(Long blogId) {
+        if (existingBlogs.getIfPresent(blogId) != null) {
+            return true;
+        }
+        boolean exists = blogService.lambdaQuery().eq(Blog::getId, blogId).exists();
+        if (exists) {
+            existingBlogs.put(blogId, Boolean.TRUE);
+        }
+        return exists;
+    }
+
+    /**
+     * 延迟写入模式下取消点赞
+     */
+    private boolean undoThumbWriteBehind(Long userId, Long blogId) {
+        long thumbId = cacheManager.getThumb(userId, blogId);
+        if (thumbId == CacheManager.NOT_FOUND || thumbId == ThumbConstant.UN_THUMB_CONSTANT) {
+            throw new RuntimeException("用户未点赞");
+        }
+
+        userThumbStore.deleteJournaled(userId, blogId, thumbId);
+        cacheManager.putThumbIfPresent(userId, blogId, ThumbConstant.UN_THUMB_CONSTANT);
+        Thumb thumb = new Thumb();
+        thumb.setId(thumbId);
+        thumb.setUserId(userId);
+        thumb.setBlogId(blogId);
+        if (writeBehindBuffer.removeThumb(thumb) >= writeBehindProperties.getFlushSize()) {
+            Thread.startVirtualThread(this::flushWriteBehind);
+        }
+        return true;
+    }
+
+    /**
+     * 定时把延迟写入的点赞批量写入数据库
+     * 已有线程在写入时直接返回
+     */
+    @Scheduled(fixedDelayString = "${thumb.write-behind.flush-interval-millis:1000}")
+    public void flushWriteBehind() {
+        if (!writeBehindProperties.isEnabled() || !flushLock.tryLock()) {
+            return;
+        }
+        try {
+            do {
+                if (!flushBatch()) {
+                    return;
+                }
+            } while (writeBehindBuffer.pending() >= writeBehindProperties.getFlushSize());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 重放延迟写入日志中长时间未写入数据库的记录，通常来自宕机的实例，放入本实例的缓冲后随下一批写入
+     */
+    @Scheduled(fixedDelayString = "${thumb.write-behind.journal-replay-after-millis:60000}")
+    public void replayWriteBehindJournal() {
+        if (!writeBehindProperties.isEnabled()) {
+            return;
+        }
+        List<ThumbWriteBehindJournal.Entry> entries = writeBehindJournal.staleEntries(
+                System.currentTimeMillis() - writeBehindProperties.getJournalReplayAfterMillis());
+        if (entries.isEmpty()) {
+            return;
+        }
+        log.warn("重放 {} 条未写入数据库的延迟写入日志", entries.size());
+        for (ThumbWriteBehindJournal.Entry entry : entries) {
+            if (entry.insert()) {
+                writeBehindBuffer.addThumb(entry.thumb());
+            } else {
+                writeBehindBuffer.removeThumb(entry.thumb());
+            }
+        }
+        Thread.startVirtualThread(this::flushWriteBehind);
+    }
+
+    /**
+     * 关闭前写完缓冲中的全部内容
+     */
+    @PreDestroy
+    public void drainWriteBehind() {
+        flushLock.lock();
+        try {
+            while (true) {
+                ThumbWriteBehindBuffer.Batch batch = writeBehindBuffer.drain(writeBehindProperties.getFlushSize());
+                if (batch.isEmpty()) {
+                    return;
+                }
+                if (!persist(batch)) {
+                    log.error("关闭前写入点赞数据失败，剩余 {} 条点赞记录保留在延迟写入日志中，由其他实例重放", writeBehindBuffer.pending());
+                    return;
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * @return 是否写入了数据
+     */
+    private boolean flushBatch() {
+        ThumbWriteBehindBuffer.Batch batch = writeBehindBuffer.drain(writeBehindProperties.getFlushSize());
+        if (batch.isEmpty()) {
+            return false;
+        }
+        return persist(batch);
+    }
+
+    /**
+     * 写入一批点赞数据，失败时放回缓冲等待下一次重试
+     * 同一批连续失败 maxAttempts 次后拆成两半分别重试，只剩一条记录仍然失败时放弃该记录（死信），
+     * 避免一条无法写入的记录让整批、以及排在它之后的所有批次一直重试
+     */
+    private boolean persist(ThumbWriteBehindBuffer.Batch batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeBatch(batch));
+        } catch (Exception e) {
+            int attempts = batch.attempts() + 1;
+            if (attempts < writeBehindProperties.getMaxAttempts()) {
+                log.error("批量写入点赞数据失败（第 {} 次），稍后重试", attempts, e);
+                writeBehindBuffer.restore(new ThumbWriteBehindBuffer.Batch(batch.inserts(), batch.deletes(), attempts));
+            } else if (batch.size() > 1) {
+                log.error("批量写入点赞数据连续失败 {} 次，拆分 {} 条记录后重试", attempts, batch.size(), e);
+                List<ThumbWriteBehindBuffer.Batch> halves = split(batch);
+                // 放回队首，逆序放回以保持先删后插的顺序
+                writeBehindBuffer.restore(halves.get(1));
+                writeBehindBuffer.restore(halves.get(0));
+            } else {
+                log.error("点赞数据连续写入失败 {} 次，放弃写入并移入死信：inserts={}, deletes={}", attempts,
+                        batch.inserts(), batch.deletes(), e);
+                writeBehindJournal.deadLetter(batch);
+            }
+            return false;
+        }
+        try {
+            writeBehindJournal.ack(batch);
+        } catch (Exception e) {
+            // 日志保留下来会在之后被重放，重放已写入的记录不会重复计数
+            log.warn("移除延迟写入日志失败", e);
+        }
+        return true;
+    }
+
+    /**
+     * 拆成两个批次：同时有删除和插入时按删除、插入拆分，否则把记录平分
+     */
+    private static List<ThumbWriteBehindBuffer.Batch> split(ThumbWriteBehindBuffer.Batch batch) {
+        if (!batch.deletes().isEmpty() && !batch.inserts().isEmpty()) {
+            return List.of(new ThumbWriteBehindBuffer.Batch(List.of(), batch.deletes(), 0),
+                    new ThumbWriteBehindBuffer.Batch(batch.inserts(), List.of(), 0));
+        }
+        List<Thumb> deletes = batch.deletes();
+        List<Thumb> inserts = batch.inserts();
+        int half = batch.size() / 2;
+        return List.of(
+                new ThumbWriteBehindBuffer.Batch(inserts.subList(0, Math.min(half, inserts.size())),
+                        deletes.subList(0, Math.min(half, deletes.size())), 0),
+                new ThumbWriteBehindBuffer.Batch(inserts.subList(Math.min(half, inserts.size()), inserts.size()),
+                        deletes.subList(Math.min(half, deletes.size()), deletes.size()), 0));
+    }
+
+    /**
+     * 先删除再插入：两次写入之间取消点赞又重新点赞时，旧记录先删除，新记录才不会与 (userId, blogId) 唯一键冲突
+     * 点赞数只按实际删除 / 插入的记录更新，(userId, blogId) 已存在而被跳过的插入不计数
+     */
+    private void writeBatch(ThumbWriteBehindBuffer.Batch batch) {
+        Map<Long, Long> countMap = new HashMap<>();
+        if (!batch.deletes().isEmpty()) {
+            List<Thumb> removed = this.list(new LambdaQueryWrapper<Thumb>()
+                    .select(Thumb::getId, Thumb::getBlogId)
+                    .in(Thumb::getId, batch.deletes().stream().map(Thumb::getId).toList())
+                    .last("for update"));
+            if (!removed.isEmpty()) {
+                this.removeByIds(removed.stream().map(Thumb::getId).toList());
+                removed.forEach(thumb -> countMap.merge(thumb.getBlogId(), -1L, Long::sum));
+            }
+        }
+        for (List<Thumb> part : ListUtil.partition(batch.inserts(), INSERT_BATCH_SIZE)) {
+            // 重放的日志可能已经写入过，按 id 已存在的记录跳过，不重复计数
+            Set<Long> existing = this.list(new LambdaQueryWrapper<Thumb>()
+                            .select(Thumb::getId)
+                            .in(Thumb::getId, part.stream().map(Thumb::getId).toList()))
+                    .stream().map(Thumb::getId).collect(Collectors.toSet());
+            List<Thumb> fresh = part.stream().filter(thumb -> !existing.contains(thumb.getId())).toList();
+            if (fresh.isEmpty() || baseMapper.insertIgnoreBatch(fresh) == 0) {
+                continue;
+            }
+            // 预先分配了 id，按 id 查询即可知道哪些记录被插入
+            List<Thumb> inserted = this.list(new LambdaQueryWrapper<Thumb>()
+                    .select(Thumb::getBlogId)
+                    .in(Thumb::getId, fresh.stream().map(Thumb::getId).toList()));
+            inserted.forEach(thumb -> countMap.merge(thumb.getBlogId(), 1L, Long::sum));
+        }
+        if (!countMap.isEmpty()) {
+            blogMapper.batchUpdateThumbCount(countMap);
+        }
     }
 }
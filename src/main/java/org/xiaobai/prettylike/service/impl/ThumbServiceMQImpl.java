@@ -5,13 +5,16 @@ import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pulsar.client.api.PulsarClientException;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.pulsar.core.PulsarTemplate;
 import org.springframework.stereotype.Service;
 import org.xiaobai.prettylike.common.constant.RedisLuaScriptConstant;
+import org.xiaobai.prettylike.common.constant.ThumbConstant;
 import org.xiaobai.prettylike.common.enums.LuaStatusEnum;
 import org.xiaobai.prettylike.listener.thumb.msg.ThumbEvent;
+import org.xiaobai.prettylike.manager.thumb.ThumbFilter;
+import org.xiaobai.prettylike.manager.thumb.UserThumbStore;
 import org.xiaobai.prettylike.mapper.ThumbMapper;
+import org.xiaobai.prettylike.model.dto.thumb.BatchThumbRequest;
 import org.xiaobai.prettylike.model.dto.thumb.DoThumbRequest;
 import org.xiaobai.prettylike.model.entity.Thumb;
 import org.xiaobai.prettylike.model.entity.User;
@@ -20,7 +23,11 @@ import org.xiaobai.prettylike.service.UserService;
 import org.xiaobai.prettylike.utils.RedisKeyUtil;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * 点赞表 Service 实现类 (基于MQ实现)
@@ -33,7 +40,9 @@ public class ThumbServiceMQImpl extends ServiceImpl<ThumbMapper, Thumb>
 
     private final UserService userService;
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final UserThumbStore userThumbStore;
+
+    private final ThumbFilter thumbFilter;
 
     private final PulsarTemplate<ThumbEvent> pulsarTemplate;
 
@@ -45,10 +54,12 @@ public class ThumbServiceMQImpl extends ServiceImpl<ThumbMapper, Thumb>
         User loginUser = userService.getLoginUser(request);
         Long loginUserId = loginUser.getId();
         Long blogId = doThumbRequest.getBlogId();
-        String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUserId);
+        String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUserId, blogId);
         // 执行 Lua 脚本，点赞存入 Redis
-        Long result = redisTemplate.execute(
+        Long result = userThumbStore.execute(
                 RedisLuaScriptConstant.THUMB_SCRIPT_MQ,
+                loginUserId,
+                blogId,
                 List.of(userThumbKey),
                 blogId
         );
@@ -59,6 +70,11 @@ public class ThumbServiceMQImpl extends ServiceImpl<ThumbMapper, Thumb>
         if(LuaStatusEnum.FAIL.getValue() == result){
             throw new RuntimeException("用户已点赞");
         }
+        if (LuaStatusEnum.SUCCESS.getValue() != result) {
+            // 加载分桶后重试仍为 COLD：点赞记录没有写入 Redis，不能发送事件
+            throw new RuntimeException("点赞失败，请稍后重试");
+        }
+        thumbFilter.recordThumb(loginUserId, blogId);
 
         ThumbEvent thumbEvent = ThumbEvent.builder()
                 .blogId(blogId)
@@ -69,7 +85,7 @@ public class ThumbServiceMQImpl extends ServiceImpl<ThumbMapper, Thumb>
 
         try {
             pulsarTemplate.sendAsync("thumb-topic", thumbEvent).exceptionally(ex -> {
-                redisTemplate.opsForHash().delete(userThumbKey, blogId.toString(), true);
+                userThumbStore.delete(loginUserId, blogId);
                 log.error("点赞事件发送失败: userId={}, blogId={}", loginUserId, blogId, ex);
                 return null;
             });
@@ -80,6 +96,62 @@ public class ThumbServiceMQImpl extends ServiceImpl<ThumbMapper, Thumb>
         return true;
     }
 
+    /**
+     * 批量点赞：一次 Lua 脚本写入所有点赞记录，成功的部分合并为一条消息发送
+     */
+    @Override
+    public Map<Long, Boolean> doThumbBatch(BatchThumbRequest batchThumbRequest, HttpServletRequest request) {
+        if (batchThumbRequest == null || batchThumbRequest.getBlogIds() == null || batchThumbRequest.getBlogIds().isEmpty()) {
+            throw new RuntimeException("参数错误");
+        }
+        List<Long> blogIds = batchThumbRequest.getBlogIds().stream().filter(Objects::nonNull).distinct().toList();
+        if (blogIds.isEmpty()) {
+            throw new RuntimeException("参数错误");
+        }
+        if (blogIds.size() > ThumbConstant.MAX_BATCH_THUMB_SIZE) {
+            throw new RuntimeException("批量点赞数量超过上限");
+        }
+        User loginUser = userService.getLoginUser(request);
+        Long loginUserId = loginUser.getId();
+        List<Long> results = userThumbStore.executeBatch(
+                RedisLuaScriptConstant.THUMB_BATCH_SCRIPT_MQ,
+                loginUserId,
+                blogIds,
+                List.of()
+        );
+
+        Map<Long, Boolean> resultMap = new LinkedHashMap<>();
+        List<Long> thumbedBlogIds = new ArrayList<>();
+        for (int i = 0; i < blogIds.size(); i++) {
+            boolean success = LuaStatusEnum.SUCCESS.getValue() == results.get(i);
+            resultMap.put(blogIds.get(i), success);
+            if (success) {
+                thumbedBlogIds.add(blogIds.get(i));
+                thumbFilter.recordThumb(loginUserId, blogIds.get(i));
+            }
+        }
+        if (thumbedBlogIds.isEmpty()) {
+            return resultMap;
+        }
+
+        ThumbEvent thumbEvent = ThumbEvent.builder()
+                .blogIds(thumbedBlogIds)
+                .userId(loginUserId)
+                .type(ThumbEvent.EventType.INCR)
+                .eventTime(LocalDateTime.now())
+                .build();
+        try {
+            pulsarTemplate.sendAsync("thumb-topic", thumbEvent).exceptionally(ex -> {
+                thumbedBlogIds.forEach(blogId -> userThumbStore.delete(loginUserId, blogId));
+                log.error("批量点赞事件发送失败: userId={}, blogIds={}", loginUserId, thumbedBlogIds, ex);
+                return null;
+            });
+        } catch (PulsarClientException e) {
+            throw new RuntimeException("点赞消息发送失败");
+        }
+        return resultMap;
+    }
+
     @Override
     public Boolean undoThumb(DoThumbRequest doThumbRequest, HttpServletRequest request) {
         if (doThumbRequest == null || doThumbRequest.getBlogId() == null) {
@@ -88,10 +160,12 @@ public class ThumbServiceMQImpl extends ServiceImpl<ThumbMapper, Thumb>
         User loginUser = userService.getLoginUser(request);
         Long loginUserId = loginUser.getId();
         Long blogId = doThumbRequest.getBlogId();
-        String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUserId);
+        String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUserId, blogId);
         // 执行 Lua 脚本，点赞记录从 Redis 删除
-        Long result = redisTemplate.execute(
+        Long result = userThumbStore.execute(
                 RedisLuaScriptConstant.UNTHUMB_SCRIPT_MQ,
+                loginUserId,
+                blogId,
                 List.of(userThumbKey),
                 blogId
         );
@@ -103,6 +177,10 @@ public class ThumbServiceMQImpl extends ServiceImpl<ThumbMapper, Thumb>
         if (LuaStatusEnum.FAIL.getValue() == result) {
             throw new RuntimeException("用户未点赞");
         }
+        if (LuaStatusEnum.SUCCESS.getValue() != result) {
+            // 加载分桶后重试仍为 COLD：点赞记录没有从 Redis 删除，不能发送事件
+            throw new RuntimeException("取消点赞失败，请稍后重试");
+        }
 
         ThumbEvent thumbEvent = ThumbEvent.builder()
                 .blogId(blogId)
@@ -112,7 +190,8 @@ public class ThumbServiceMQImpl extends ServiceImpl<ThumbMapper, Thumb>
                 .build();
         try {
             pulsarTemplate.sendAsync("thumb-topic", thumbEvent).exceptionally(ex -> {
-                redisTemplate.opsForHash().put(userThumbKey, blogId.toString(), true);
+                userThumbStore.put(loginUserId, blogId, 1);
+                thumbFilter.recordThumb(loginUserId, blogId);
                 log.error("取消点赞事件发送失败: userId={}, blogId={}", loginUserId, blogId, ex);
                 return null;
             });
@@ -125,6 +204,9 @@ public class ThumbServiceMQImpl extends ServiceImpl<ThumbMapper, Thumb>
 
     @Override
     public Boolean hasThumb(Long blogId, Long userId) {
-        return redisTemplate.opsForHash().hasKey(RedisKeyUtil.getUserThumbKey(userId), blogId.toString());
+        if (!thumbFilter.mightHaveThumb(userId, blogId)) {
+            return false;
+        }
+        return userThumbStore.get(userId, blogId) != null;
     }
 }
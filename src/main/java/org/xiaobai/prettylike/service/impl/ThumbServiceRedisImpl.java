@@ -1,16 +1,18 @@
 package org.xiaobai.prettylike.service.impl;
 
-import cn.hutool.core.date.DateTime;
-import cn.hutool.core.date.DateUtil;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.xiaobai.prettylike.common.constant.RedisLuaScriptConstant;
+import org.xiaobai.prettylike.common.constant.ThumbConstant;
 import org.xiaobai.prettylike.common.enums.LuaStatusEnum;
+import org.xiaobai.prettylike.manager.thumb.ThumbFilter;
+import org.xiaobai.prettylike.manager.thumb.TimeSliceClock;
+import org.xiaobai.prettylike.manager.thumb.UserThumbStore;
 import org.xiaobai.prettylike.mapper.ThumbMapper;
+import org.xiaobai.prettylike.model.dto.thumb.BatchThumbRequest;
 import org.xiaobai.prettylike.model.dto.thumb.DoThumbRequest;
 import org.xiaobai.prettylike.model.entity.Thumb;
 import org.xiaobai.prettylike.model.entity.User;
@@ -19,6 +21,9 @@ import org.xiaobai.prettylike.service.UserService;
 import org.xiaobai.prettylike.utils.RedisKeyUtil;
 
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -31,10 +36,14 @@ public class ThumbServiceRedisImpl extends ServiceImpl<ThumbMapper, Thumb> imple
 
     private final UserService userService;
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final UserThumbStore userThumbStore;
+
+    private final ThumbFilter thumbFilter;
+
+    private final TimeSliceClock timeSliceClock;
 
     /**
-     * 点赞 认为两部分，点赞数和点赞记录，点赞数按照时间分片（hash结构），点赞记录是每个用户一个hash
+     * 点赞 认为两部分，点赞数和点赞记录，点赞数按照时间分片（hash结构），点赞记录是每个用户按博客分桶的多个hash
      * 通过 LUA 脚本，对点赞数增加，插入点赞记录（会先判断是否已经点赞）
      * @param doThumbRequest 点赞请求
      * @param request http请求
@@ -51,15 +60,18 @@ public class ThumbServiceRedisImpl extends ServiceImpl<ThumbMapper, Thumb> imple
         String timeSlice = getTimeSlice();
         // Redis Key
         String tempThumbKey = RedisKeyUtil.getTempThumbKey(timeSlice);
-        String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUser.getId());
+        String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUser.getId(), blogId);
 
-        // 执行 Lua 脚本
-        // TODO 点赞记录会有大 Key 问题
-        Long result = redisTemplate.execute(
+        // 执行 Lua 脚本，分桶不在 Redis 中时先从数据库加载
+        Long result = userThumbStore.execute(
                 RedisLuaScriptConstant.THUMB_SCRIPT,
-                Arrays.asList(tempThumbKey, userThumbKey),
                 loginUser.getId(),
-                blogId
+                blogId,
+                Arrays.asList(tempThumbKey, userThumbKey, ThumbConstant.THUMB_SYNC_PENDING_KEY,
+                        RedisKeyUtil.getTempBlogCountKey(timeSlice)),
+                loginUser.getId(),
+                blogId,
+                timeSlice
         );
         if(Objects.isNull(result)){
             throw new RuntimeException("用户点赞出错");
@@ -70,7 +82,49 @@ public class ThumbServiceRedisImpl extends ServiceImpl<ThumbMapper, Thumb> imple
         }
 
         // 更新成功才执行
-        return LuaStatusEnum.SUCCESS.getValue() == result;
+        boolean success = LuaStatusEnum.SUCCESS.getValue() == result;
+        if (success) {
+            thumbFilter.recordThumb(loginUser.getId(), blogId);
+        }
+        return success;
+    }
+
+    /**
+     * 批量点赞：所有博客在同一个 Lua 脚本中写入临时计数和点赞记录，只需一次往返
+     */
+    @Override
+    public Map<Long, Boolean> doThumbBatch(BatchThumbRequest batchThumbRequest, HttpServletRequest request) {
+        if (batchThumbRequest == null || batchThumbRequest.getBlogIds() == null || batchThumbRequest.getBlogIds().isEmpty()) {
+            throw new RuntimeException("参数错误");
+        }
+        List<Long> blogIds = batchThumbRequest.getBlogIds().stream().filter(Objects::nonNull).distinct().toList();
+        if (blogIds.isEmpty()) {
+            throw new RuntimeException("参数错误");
+        }
+        if (blogIds.size() > ThumbConstant.MAX_BATCH_THUMB_SIZE) {
+            throw new RuntimeException("批量点赞数量超过上限");
+        }
+        User loginUser = userService.getLoginUser(request);
+        String timeSlice = getTimeSlice();
+        List<Long> results = userThumbStore.executeBatch(
+                RedisLuaScriptConstant.THUMB_BATCH_SCRIPT,
+                loginUser.getId(),
+                blogIds,
+                List.of(RedisKeyUtil.getTempThumbKey(timeSlice), ThumbConstant.THUMB_SYNC_PENDING_KEY,
+                        RedisKeyUtil.getTempBlogCountKey(timeSlice)),
+                loginUser.getId(),
+                timeSlice
+        );
+
+        Map<Long, Boolean> resultMap = new LinkedHashMap<>();
+        for (int i = 0; i < blogIds.size(); i++) {
+            boolean success = LuaStatusEnum.SUCCESS.getValue() == results.get(i);
+            resultMap.put(blogIds.get(i), success);
+            if (success) {
+                thumbFilter.recordThumb(loginUser.getId(), blogIds.get(i));
+            }
+        }
+        return resultMap;
     }
 
     @Override
@@ -85,16 +139,20 @@ public class ThumbServiceRedisImpl extends ServiceImpl<ThumbMapper, Thumb> imple
         String timeSlice = getTimeSlice();
         // Redis Key
         String tempThumbKey = RedisKeyUtil.getTempThumbKey(timeSlice);
-        String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUser.getId());
+        String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUser.getId(), blogId);
 
-        // 执行 Lua 脚本
-        Long result = redisTemplate.execute(
+        // 执行 Lua 脚本，分桶不在 Redis 中时先从数据库加载
+        Long result = userThumbStore.execute(
                 RedisLuaScriptConstant.UNTHUMB_SCRIPT,
-                Arrays.asList(tempThumbKey, userThumbKey),
                 loginUser.getId(),
-                blogId
+                blogId,
+                Arrays.asList(tempThumbKey, userThumbKey, ThumbConstant.THUMB_SYNC_PENDING_KEY,
+                        RedisKeyUtil.getTempBlogCountKey(timeSlice)),
+                loginUser.getId(),
+                blogId,
+                timeSlice
         );
-        if(!Objects.isNull(result)){
+        if(Objects.isNull(result)){
             throw new RuntimeException("用户取消点赞失败");
         }
 
@@ -107,14 +165,14 @@ public class ThumbServiceRedisImpl extends ServiceImpl<ThumbMapper, Thumb> imple
     }
 
     private String getTimeSlice() {
-        DateTime nowDate = DateUtil.date();
-        // 获取到当前时间前最近的整数秒，比如当前 11:20:23 ，获取到 11:20:20
-        return DateUtil.format(nowDate, "HH:mm:") + (DateUtil.second(nowDate) / 10) * 10;
+        return String.valueOf(timeSliceClock.currentSlice());
     }
 
     @Override
     public Boolean hasThumb(Long blogId, Long userId) {
-        return redisTemplate.opsForHash()
-                .hasKey(RedisKeyUtil.getUserThumbKey(userId), blogId.toString());
+        if (!thumbFilter.mightHaveThumb(userId, blogId)) {
+            return false;
+        }
+        return userThumbStore.get(userId, blogId) != null;
     }
 }
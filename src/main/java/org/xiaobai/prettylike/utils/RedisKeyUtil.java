@@ -7,8 +7,32 @@ import org.xiaobai.prettylike.common.constant.ThumbConstant;
  */
 public final class RedisKeyUtil {
 
-    public static String getUserThumbKey(Long userId) {
-        return ThumbConstant.USER_THUMB_KEY_PREFIX + userId;
+    /**
+     * 获取 博客所在的用户点赞分桶 key
+     */
+    public static String getUserThumbKey(Long userId, Long blogId) {
+        return getUserThumbBucketKey(userId, getUserThumbBucket(blogId));
+    }
+
+    /**
+     * 获取 用户点赞分桶 key
+     */
+    public static String getUserThumbBucketKey(Long userId, int bucket) {
+        return ThumbConstant.USER_THUMB_KEY_PREFIX + userId + ":" + bucket;
+    }
+
+    /**
+     * 博客所在的分桶
+     */
+    public static int getUserThumbBucket(Long blogId) {
+        return Math.floorMod(blogId, ThumbConstant.USER_THUMB_BUCKETS);
+    }
+
+    /**
+     * 获取 用户点赞操作锁 key
+     */
+    public static String getUserThumbLockKey(Long userId) {
+        return ThumbConstant.USER_THUMB_LOCK_KEY_PREFIX + userId;
     }
 
     /**
@@ -17,4 +41,11 @@ public final class RedisKeyUtil {
     public static String getTempThumbKey(String time) {
         return ThumbConstant.TEMP_THUMB_KEY_PREFIX.formatted(time);
     }
+
+    /**
+     * 获取 时间片内博客点赞数增量 key
+     */
+    public static String getTempBlogCountKey(String time) {
+        return ThumbConstant.TEMP_BLOG_COUNT_KEY_PREFIX.formatted(time);
+    }
 }
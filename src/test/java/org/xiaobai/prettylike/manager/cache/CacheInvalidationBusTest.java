@@ -0,0 +1,117 @@
+package org.xiaobai.prettylike.manager.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 本地缓存失效广播测试
+ * 模拟两个实例，各自持有本地缓存，通过内存广播通道代替 Redis Pub/Sub
+ */
+public class CacheInvalidationBusTest {
+
+    private static final String KEY = "thumb:1:100";
+
+    private InMemoryClusterChannel channel;
+    private Cache<String, Object> cacheA;
+    private Cache<String, Object> cacheB;
+    private CacheInvalidationBus busA;
+    private CacheInvalidationBus busB;
+
+    @BeforeEach
+    void setUp() {
+        channel = new InMemoryClusterChannel();
+        cacheA = Caffeine.newBuilder().build();
+        cacheB = Caffeine.newBuilder().build();
+        busA = new CacheInvalidationBus(channel, cacheA::invalidateAll);
+        busB = new CacheInvalidationBus(channel, cacheB::invalidateAll);
+        busA.start();
+        busB.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        busA.stop();
+        busB.stop();
+    }
+
+    @Test
+    void invalidatesOtherInstancesOnly() {
+        cacheA.put(KEY, 1L);
+        cacheB.put(KEY, 1L);
+
+        // 实例 A 修改数据：本地更新为新值，并通知其他实例
+        cacheA.put(KEY, 0L);
+        busA.invalidate(KEY);
+        busA.flush();
+
+        assertThat(cacheA.getIfPresent(KEY)).isEqualTo(0L);
+        assertThat(cacheB.getIfPresent(KEY)).isNull();
+    }
+
+    @Test
+    void coalescesRepeatedInvalidations() {
+        int before = channel.published();
+        for (int i = 0; i < 100; i++) {
+            busA.invalidate(KEY);
+            busA.invalidate("thumb:2:200");
+        }
+        busA.flush();
+
+        assertThat(channel.published() - before).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    void flushesInBackground() throws InterruptedException {
+        cacheB.put(KEY, 1L);
+        busA.invalidate(KEY);
+
+        long deadline = System.currentTimeMillis() + 1000;
+        while (cacheB.getIfPresent(KEY) != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(cacheB.getIfPresent(KEY)).isNull();
+    }
+
+    @Test
+    void rejectsValueReadBeforeInvalidation() {
+        // 实例 B 本地缓存未命中，从 Redis 读到旧值
+        long stamp = busB.stamp();
+        Object stale = 1L;
+
+        // 实例 A 修改数据，失效消息在 B 写入本地缓存之前到达
+        busA.invalidate(KEY);
+        busA.flush();
+
+        fill(busB, cacheB, KEY, stale, stamp);
+        assertThat(cacheB.getIfPresent(KEY)).isNull();
+
+        // 失效之后读取的值可以写入
+        fill(busB, cacheB, KEY, 0L, busB.stamp());
+        assertThat(cacheB.getIfPresent(KEY)).isEqualTo(0L);
+    }
+
+    @Test
+    void rejectsValueReadBeforeLocalWrite() {
+        long stamp = busA.stamp();
+        // 本实例修改数据时同样记录失效序号
+        busA.invalidate(KEY);
+
+        fill(busA, cacheA, KEY, 1L, stamp);
+        assertThat(cacheA.getIfPresent(KEY)).isNull();
+    }
+
+    /**
+     * 与 CacheManager 相同的写入方式：先写入，再检查读取之后是否被失效过
+     */
+    private static void fill(CacheInvalidationBus bus, Cache<String, Object> cache, String key, Object value, long stamp) {
+        cache.put(key, value);
+        if (bus.invalidatedSince(key, stamp)) {
+            cache.invalidate(key);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package org.xiaobai.prettylike.manager.cache;
+
+import cn.hutool.core.util.HashUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 热key 检测器准确率基准
+ * 在固定种子生成的 Zipf 分布访问序列上对比：
+ * 1.修复前的下标推导：每一行都用同一个 murmur32(key) 取模，所有行落在同一列
+ * 2.修复后的下标推导：一次 128 位哈希，每一行由 h1 + i * h2 推导出独立下标
+ * 两种推导放在同一个参考实现中，衰减使用固定种子的随机数，结果可复现；另外检查生产实现的准确率下限
+ */
+@Slf4j
+public class HeavyKeeperAccuracyTest {
+
+    private static final int K = 100;
+    private static final int WIDTH = 2000;
+    private static final int DEPTH = 5;
+    private static final int KEY_SPACE = 50_000;
+    private static final int EVENTS = 1_000_000;
+    private static final long SEED = 42;
+
+    /**
+     * 修复后的准确率下限
+     */
+    private static final double MIN_PRECISION = 0.98;
+
+    /**
+     * 生产实现的衰减使用 ThreadLocalRandom，留出余量
+     */
+    private static final double MIN_PRODUCTION_PRECISION = 0.95;
+
+    @Test
+    void compareOnZipfTraces() {
+        for (double skew : new double[]{0.8, 1.0, 1.2}) {
+            String[] trace = zipfTrace(skew, new Random(SEED));
+            Set<String> expected = exactTopK(trace);
+
+            double legacy = precision(expected, run(trace, new ReferenceHeavyKeeper(DEPTH, SEED, (key, row) -> {
+                int hash = legacyHash(key);
+                return new int[]{Math.abs(hash) % WIDTH, hash};
+            })));
+            double derived = precision(expected, run(trace, new ReferenceHeavyKeeper(DEPTH, SEED, (key, row) -> {
+                long[] hash = KeyHasher.hash128(key);
+                return new int[]{KeyHasher.index(hash[0], hash[1], row, WIDTH), KeyHasher.fingerprint(hash[0], hash[1])};
+            })));
+            double production = precision(expected, run(trace, new LockFreeHeavyKeeper(K, WIDTH, DEPTH, 0.92, 1)));
+            log.info("skew={}: 旧下标 precision={}，新下标 precision={}，LockFreeHeavyKeeper precision={}", skew,
+                    String.format("%.3f", legacy), String.format("%.3f", derived), String.format("%.3f", production));
+
+            assertThat(derived).isGreaterThanOrEqualTo(MIN_PRECISION).isGreaterThanOrEqualTo(legacy);
+            assertThat(production).isGreaterThanOrEqualTo(MIN_PRODUCTION_PRECISION);
+        }
+    }
+
+    /**
+     * 修复前 HeavyKeeper 的 hash(key)：与行号无关
+     */
+    private static int legacyHash(String key) {
+        return HashUtil.murmur32(key.getBytes());
+    }
+
+    private static List<String> run(String[] trace, ReferenceHeavyKeeper sketch) {
+        for (String key : trace) {
+            sketch.add(key);
+        }
+        return sketch.topK();
+    }
+
+    private static List<String> run(String[] trace, TopK topK) {
+        for (String key : trace) {
+            topK.add(key, 1);
+        }
+        return topK.list().stream().map(Item::key).toList();
+    }
+
+    private static Set<String> exactTopK(String[] trace) {
+        Map<String, Integer> exact = new HashMap<>();
+        for (String key : trace) {
+            exact.merge(key, 1, Integer::sum);
+        }
+        Set<String> expected = new HashSet<>();
+        exact.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(K)
+                .forEach(e -> expected.add(e.getKey()));
+        return expected;
+    }
+
+    private static double precision(Set<String> expected, List<String> reported) {
+        return reported.stream().filter(expected::contains).count() / (double) K;
+    }
+
+    /**
+     * 生成 Zipf 分布的访问序列
+     */
+    private static String[] zipfTrace(double skew, Random random) {
+        double[] cdf = new double[KEY_SPACE];
+        double sum = 0;
+        for (int i = 0; i < KEY_SPACE; i++) {
+            sum += 1 / Math.pow(i + 1, skew);
+            cdf[i] = sum;
+        }
+        String[] keys = new String[KEY_SPACE];
+        for (int i = 0; i < KEY_SPACE; i++) {
+            keys[i] = "thumb:" + (100000 + i) + ":" + (200000 + i * 7);
+        }
+        String[] trace = new String[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            int rank = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+            trace[i] = keys[rank < 0 ? -rank - 1 : rank];
+        }
+        return trace;
+    }
+
+    /**
+     * 单线程的 HeavyKeeper 参考实现，只有下标推导不同，衰减使用固定种子
+     */
+    private static class ReferenceHeavyKeeper {
+
+        interface Hashing {
+            /**
+             * @return [第 row 行的桶下标, 指纹]
+             */
+            int[] apply(String key, int row);
+        }
+
+        private final int depth;
+        private final Random random;
+        private final Hashing hashing;
+        private final int[][] fingerprints;
+        private final int[][] counts;
+        private final double[] lookupTable = new double[256];
+        private final Map<String, Integer> estimates = new HashMap<>();
+
+        ReferenceHeavyKeeper(int depth, long seed, Hashing hashing) {
+            this.depth = depth;
+            this.random = new Random(seed);
+            this.hashing = hashing;
+            this.fingerprints = new int[depth][WIDTH];
+            this.counts = new int[depth][WIDTH];
+            for (int i = 0; i < lookupTable.length; i++) {
+                lookupTable[i] = Math.pow(0.92, i);
+            }
+        }
+
+        void add(String key) {
+            int maxCount = 0;
+            for (int row = 0; row < depth; row++) {
+                int[] hash = hashing.apply(key, row);
+                int index = hash[0];
+                int fingerprint = hash[1];
+                if (counts[row][index] == 0) {
+                    fingerprints[row][index] = fingerprint;
+                    counts[row][index] = 1;
+                } else if (fingerprints[row][index] == fingerprint) {
+                    counts[row][index]++;
+                } else {
+                    double decay = lookupTable[Math.min(counts[row][index], lookupTable.length - 1)];
+                    if (random.nextDouble() < decay && --counts[row][index] == 0) {
+                        fingerprints[row][index] = fingerprint;
+                        counts[row][index] = 1;
+                    }
+                    continue;
+                }
+                maxCount = Math.max(maxCount, counts[row][index]);
+            }
+            if (maxCount > 0) {
+                estimates.put(key, maxCount);
+            }
+        }
+
+        List<String> topK() {
+            return estimates.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .limit(K)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        }
+    }
+}
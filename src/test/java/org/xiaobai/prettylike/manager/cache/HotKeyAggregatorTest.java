@@ -0,0 +1,88 @@
+package org.xiaobai.prettylike.manager.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.xiaobai.prettylike.config.HotKeyProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 集群热key 聚合测试
+ * 使用内存实现的广播通道代替 Redis Pub/Sub
+ */
+public class HotKeyAggregatorTest {
+
+    @Test
+    void mergesDigestsFromAllInstances() {
+        InMemoryClusterChannel channel = new InMemoryClusterChannel();
+        List<TopK> detectors = new ArrayList<>();
+        List<CacheManager> cacheManagers = new ArrayList<>();
+        List<HotKeyAggregator> aggregators = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            TopK detector = new LockFreeHeavyKeeper(10, 1000, 5, 0.92, 1);
+            CacheManager cacheManager = mock(CacheManager.class);
+            HotKeyAggregator aggregator = new HotKeyAggregator(detector, channel, cacheManager, new HotKeyProperties());
+            aggregator.init();
+            detectors.add(detector);
+            cacheManagers.add(cacheManager);
+            aggregators.add(aggregator);
+        }
+
+        // 在每个实例上都只算中等热度的 key
+        for (TopK detector : detectors) {
+            for (int i = 0; i < 30; i++) {
+                detector.add("thumb:1:100", 1);
+            }
+        }
+        // 只在一个实例上很热的 key
+        for (int i = 0; i < 50; i++) {
+            detectors.get(0).add("thumb:2:200", 1);
+        }
+
+        aggregators.forEach(HotKeyAggregator::publish);
+        HotKeyAggregator aggregator = aggregators.get(1);
+        aggregator.aggregate();
+
+        List<Item> global = aggregator.globalHotKeys();
+        assertThat(global).extracting(Item::key).containsExactly("thumb:1:100", "thumb:2:200");
+        assertThat(global.get(0).count()).isEqualTo(90);
+        // 没有在本实例上出现过的 key 也会被预热
+        verify(cacheManagers.get(1)).preload(argThat(keys -> keys.contains("thumb:2:200")));
+    }
+
+    @Test
+    void expelsPreloadedKeysThatLeaveGlobalTopK() throws Exception {
+        InMemoryClusterChannel channel = new InMemoryClusterChannel();
+        TopK detector = new LockFreeHeavyKeeper(10, 1000, 5, 0.92, 1);
+        CacheManager cacheManager = mock(CacheManager.class);
+        HotKeyAggregator aggregator = new HotKeyAggregator(detector, channel, cacheManager, new HotKeyProperties());
+        aggregator.init();
+        for (int i = 0; i < 30; i++) {
+            detector.add("thumb:2:200", 1);
+        }
+
+        // 另一个实例上的热key 被预热到本实例
+        publishDigest(channel, List.of(new Item("thumb:1:100", 50), new Item("thumb:2:200", 40)));
+        aggregator.aggregate();
+        verify(cacheManager).preload(argThat(keys -> keys.contains("thumb:1:100")));
+
+        // 另一个实例上的热key 变冷，离开全局 TopK
+        publishDigest(channel, List.of(new Item("thumb:3:300", 50)));
+        aggregator.aggregate();
+
+        // 离开全局 TopK 的预热 key 被剔除，仍在本地 TopK 中的 key 交给本地检测器剔除
+        verify(cacheManager).invalidateLocal(argThat(keys -> keys.contains("thumb:1:100")
+                && !keys.contains("thumb:2:200")));
+    }
+
+    private static void publishDigest(InMemoryClusterChannel channel, List<Item> items) throws Exception {
+        HotKeyDigest digest = new HotKeyDigest("remote", System.currentTimeMillis(), items);
+        channel.publish(HotKeyAggregator.DIGEST_CHANNEL, new ObjectMapper().writeValueAsString(digest));
+    }
+}
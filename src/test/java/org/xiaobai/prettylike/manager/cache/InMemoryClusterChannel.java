@@ -0,0 +1,36 @@
+package org.xiaobai.prettylike.manager.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 内存广播通道，代替 Redis Pub/Sub，同步投递给所有订阅者
+ */
+class InMemoryClusterChannel implements ClusterChannel {
+
+    private final Map<String, List<Consumer<String>>> listeners = new ConcurrentHashMap<>();
+
+    private final AtomicInteger published = new AtomicInteger();
+
+    @Override
+    public void publish(String channel, String message) {
+        published.incrementAndGet();
+        listeners.getOrDefault(channel, List.of()).forEach(listener -> listener.accept(message));
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<String> listener) {
+        listeners.computeIfAbsent(channel, k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * 已发布的消息数量
+     */
+    int published() {
+        return published.get();
+    }
+}
@@ -0,0 +1,120 @@
+package org.xiaobai.prettylike.manager.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.xiaobai.prettylike.common.constant.ThumbConstant;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * hasThumb() 本地缓存命中路径的内存分配基准
+ * 1.字符串 key：拼接 hashKey + ":" + blogId，Caffeine 查询，按字符串计算热key
+ * 2.long key：LongPairCache 查询，直接对 (userId, blogId) 计算热key
+ * 通过 ThreadMXBean 统计当前线程的分配字节数
+ */
+@Slf4j
+public class ThumbCacheAllocationTest {
+
+    private static final int USERS = 50;
+    private static final long BLOG_ID = 1_900_000_000_000_000_000L;
+    private static final int ROUNDS = 3;
+    private static final int CALLS = 1_000_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void allocationPerHit() {
+        Cache<String, Object> stringCache = Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(30, TimeUnit.MINUTES)
+                .build();
+        TopK stringDetector = new LockFreeHeavyKeeper(100, 100000, 5, 0.92, 10);
+        LongPairCache pairCache = new LongPairCache(1000, 30, TimeUnit.MINUTES);
+        TopK pairDetector = new LockFreeHeavyKeeper(100, 100000, 5, 0.92, 10);
+        for (long userId = 0; userId < USERS; userId++) {
+            stringCache.put(ThumbConstant.USER_THUMB_KEY_PREFIX + userId + ":" + BLOG_ID, userId + 1);
+            pairCache.put(userId, BLOG_ID, userId + 1);
+        }
+
+        double before = 0;
+        double after = 0;
+        // 前几轮用于预热和让热key 进入 TopK，取最后一轮的结果
+        for (int round = 0; round < ROUNDS; round++) {
+            before = measure(() -> {
+                long hits = 0;
+                for (int i = 0; i < CALLS; i++) {
+                    Long userId = (long) (i % USERS);
+                    Long blogId = BLOG_ID;
+                    String compositeKey = ThumbConstant.USER_THUMB_KEY_PREFIX + userId + ":" + blogId.toString();
+                    Object value = stringCache.getIfPresent(compositeKey);
+                    stringDetector.add(compositeKey, 1);
+                    if (!ThumbConstant.UN_THUMB_CONSTANT.equals(value)) {
+                        hits++;
+                    }
+                }
+                return hits;
+            });
+            after = measure(() -> {
+                long hits = 0;
+                for (int i = 0; i < CALLS; i++) {
+                    long userId = i % USERS;
+                    long thumbId = pairCache.get(userId, BLOG_ID);
+                    pairDetector.add(userId, BLOG_ID, 1, CacheManager::thumbCacheKey);
+                    if (thumbId != LongPairCache.MISSING && thumbId != ThumbConstant.UN_THUMB_CONSTANT) {
+                        hits++;
+                    }
+                }
+                return hits;
+            });
+        }
+
+        log.info("hasThumb 命中路径分配：字符串 key {} B/次，long key {} B/次",
+                String.format("%.2f", before), String.format("%.2f", after));
+        assertThat(before).isGreaterThan(32);
+        assertThat(after).isLessThan(1);
+        assertThat(pairDetector.list()).hasSize(USERS);
+    }
+
+    @Test
+    void longPairCacheSemantics() {
+        LongPairCache cache = new LongPairCache(16, 30, TimeUnit.MINUTES);
+        assertThat(cache.get(1, 2)).isEqualTo(LongPairCache.MISSING);
+        assertThat(cache.replace(1, 2, 3)).isFalse();
+
+        cache.put(1, 2, 3);
+        assertThat(cache.get(1, 2)).isEqualTo(3);
+        assertThat(cache.get(2, 1)).isEqualTo(LongPairCache.MISSING);
+
+        assertThat(cache.replace(1, 2, 0)).isTrue();
+        assertThat(cache.get(1, 2)).isZero();
+
+        cache.remove(1, 2);
+        assertThat(cache.contains(1, 2)).isFalse();
+
+        // 写满后仍能写入，容量不会超过槽位数
+        for (long i = 0; i < cache.capacity() * 4L; i++) {
+            cache.put(i, i, i);
+        }
+        assertThat(cache.get(cache.capacity() * 4L - 1, cache.capacity() * 4L - 1))
+                .isEqualTo(cache.capacity() * 4L - 1);
+
+        LongPairCache expiring = new LongPairCache(16, 0, TimeUnit.NANOSECONDS);
+        expiring.put(1, 2, 3);
+        assertThat(expiring.get(1, 2)).isEqualTo(LongPairCache.MISSING);
+    }
+
+    private static double measure(java.util.function.LongSupplier body) {
+        long threadId = Thread.currentThread().getId();
+        long start = THREADS.getThreadAllocatedBytes(threadId);
+        long hits = body.getAsLong();
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - start;
+        assertThat(hits).isEqualTo(CALLS);
+        return (double) allocated / CALLS;
+    }
+}
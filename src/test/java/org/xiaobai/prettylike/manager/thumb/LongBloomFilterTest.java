@@ -0,0 +1,45 @@
+package org.xiaobai.prettylike.manager.thumb;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 布隆过滤器：写入的元素一定命中，误判率接近配置值
+ */
+public class LongBloomFilterTest {
+
+    private static final int INSERTIONS = 10_000;
+    private static final double FPP = 0.01;
+
+    @Test
+    void noFalseNegatives() {
+        LongBloomFilter filter = new LongBloomFilter(INSERTIONS, FPP);
+        // 雪花 id 风格的博客 id
+        long base = 1_900_000_000_000_000_000L;
+        for (long i = 0; i < INSERTIONS; i++) {
+            filter.put(base + i * 4096);
+        }
+        for (long i = 0; i < INSERTIONS; i++) {
+            assertThat(filter.mightContain(base + i * 4096)).isTrue();
+        }
+        assertThat(filter.isSaturated()).isFalse();
+
+        int falsePositives = 0;
+        for (long i = 0; i < INSERTIONS * 10L; i++) {
+            if (filter.mightContain(base + i * 4096 + 1)) {
+                falsePositives++;
+            }
+        }
+        assertThat((double) falsePositives / (INSERTIONS * 10L)).isLessThan(FPP * 2);
+    }
+
+    @Test
+    void saturatesAfterExpectedInsertions() {
+        LongBloomFilter filter = new LongBloomFilter(64, FPP);
+        for (long i = 0; i <= 64; i++) {
+            filter.put(i);
+        }
+        assertThat(filter.isSaturated()).isTrue();
+    }
+}
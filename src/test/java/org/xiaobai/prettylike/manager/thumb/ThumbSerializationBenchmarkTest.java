@@ -0,0 +1,134 @@
+package org.xiaobai.prettylike.manager.thumb;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.xiaobai.prettylike.common.constant.ThumbConstant;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 点赞记录值序列化基准
+ * 1.CPU / 内存分配：RedisConfig 中带默认类型的 Jackson 序列化器 与 thumbRedisTemplate 使用的 GenericToStringSerializer
+ * 2.Redis 内存：每百万条点赞在 单个 hash（旧格式）与 分桶 hash 下的占用，需要通过 -Dredis.host 指定 Redis 才会执行
+ */
+@Slf4j
+public class ThumbSerializationBenchmarkTest {
+
+    private static final int VALUES = 1_000_000;
+    private static final int ROUNDS = 3;
+    private static final long BASE_ID = 1_900_000_000_000_000_000L;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void serializationCpu() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+        Jackson2JsonRedisSerializer<Object> jackson = new Jackson2JsonRedisSerializer<>(objectMapper, Object.class);
+        GenericToStringSerializer<Long> compact = new GenericToStringSerializer<>(Long.class);
+
+        long[] thumbIds = new long[VALUES];
+        Random random = new Random(42);
+        for (int i = 0; i < VALUES; i++) {
+            thumbIds[i] = BASE_ID + random.nextInt(Integer.MAX_VALUE);
+        }
+
+        // Long 是 final 类型，默认类型不会写入类名，两种方式写入 Redis 的字节相同，可以直接切换
+        assertThat(jackson.serialize(thumbIds[0])).isEqualTo(compact.serialize(thumbIds[0]));
+        // Jackson 按数值大小返回 Integer 或 Long，调用方只能按 Number 处理
+        assertThat(jackson.deserialize(compact.serialize(1L))).isInstanceOf(Integer.class);
+        assertThat(compact.deserialize(compact.serialize(1L))).isEqualTo(1L);
+
+        double[] jacksonResult = new double[2];
+        double[] compactResult = new double[2];
+        for (int round = 0; round < ROUNDS; round++) {
+            jacksonResult = measure(jackson, thumbIds);
+            compactResult = measure(compact, thumbIds);
+        }
+        log.info("序列化 + 反序列化：Jackson {} ns/次 {} B/次，GenericToString {} ns/次 {} B/次",
+                String.format("%.1f", jacksonResult[0]), String.format("%.1f", jacksonResult[1]),
+                String.format("%.1f", compactResult[0]), String.format("%.1f", compactResult[1]));
+        assertThat(compactResult[1]).isLessThan(jacksonResult[1]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static double[] measure(RedisSerializer<?> serializer, long[] thumbIds) {
+        RedisSerializer<Object> s = (RedisSerializer<Object>) serializer;
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long checksum = 0;
+        for (long thumbId : thumbIds) {
+            checksum += ((Number) s.deserialize(s.serialize(thumbId))).longValue();
+        }
+        long cost = System.nanoTime() - start;
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        assertThat(checksum).isEqualTo(Arrays.stream(thumbIds).sum());
+        return new double[]{(double) cost / thumbIds.length, (double) allocated / thumbIds.length};
+    }
+
+    /**
+     * 1000 个用户各点赞 1000 篇博客，对比旧格式与分桶格式、thumbId 与点赞标记的内存占用
+     * 运行方式：-Dredis.host=127.0.0.1 [-Dredis.port=6379]
+     */
+    @Test
+    void redisMemoryPerMillionLikes() {
+        String host = System.getProperty("redis.host");
+        Assumptions.assumeTrue(host != null, "未指定 redis.host，跳过 Redis 内存基准");
+        int port = Integer.parseInt(System.getProperty("redis.port", "6379"));
+
+        int users = 1000;
+        int likesPerUser = 1000;
+        try (Jedis jedis = new Jedis(host, port)) {
+            for (boolean bucketed : new boolean[]{false, true}) {
+                for (boolean flagOnly : new boolean[]{false, true}) {
+                    String prefix = "bench:" + (bucketed ? "bucket" : "legacy") + ":" + (flagOnly ? "flag" : "id") + ":";
+                    Set<String> keys = new HashSet<>();
+                    Random random = new Random(42);
+                    Pipeline pipeline = jedis.pipelined();
+                    for (int user = 0; user < users; user++) {
+                        Map<String, Map<String, String>> hashes = new HashMap<>();
+                        for (int like = 0; like < likesPerUser; like++) {
+                            long blogId = BASE_ID + random.nextInt(Integer.MAX_VALUE);
+                            String key = bucketed
+                                    ? prefix + user + ":" + Math.floorMod(blogId, ThumbConstant.USER_THUMB_BUCKETS)
+                                    : prefix + user;
+                            String value = flagOnly ? "1" : Long.toString(BASE_ID + random.nextInt(Integer.MAX_VALUE));
+                            hashes.computeIfAbsent(key, k -> new HashMap<>()).put(Long.toString(blogId), value);
+                        }
+                        hashes.forEach((key, fields) -> {
+                            if (bucketed) {
+                                fields.put(ThumbConstant.USER_THUMB_BUCKET_MARKER, "1");
+                            }
+                            pipeline.hset(key, fields);
+                            keys.add(key);
+                        });
+                    }
+                    pipeline.sync();
+
+                    long bytes = 0;
+                    for (String key : keys) {
+                        bytes += jedis.memoryUsage(key, 0);
+                    }
+                    log.info("{}：{} 个 key，{} MB / 百万点赞，编码 {}", prefix, keys.size(),
+                            String.format("%.1f", bytes * 1_000_000.0 / (users * likesPerUser) / 1024 / 1024),
+                            jedis.objectEncoding(keys.iterator().next()));
+
+                    jedis.unlink(keys.toArray(new String[0]));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.xiaobai.prettylike.manager.thumb;
+
+import org.junit.jupiter.api.Test;
+import org.xiaobai.prettylike.model.entity.Thumb;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 点赞写缓冲：分批取出不丢记录，失败的批次在新记录之前重试
+ */
+public class ThumbWriteBehindBufferTest {
+
+    private static final long BLOG_ID = 100;
+
+    @Test
+    void cappedDrainReturnsEveryRecordOnce() {
+        ThumbWriteBehindBuffer buffer = new ThumbWriteBehindBuffer();
+        for (long id = 1; id <= 10; id++) {
+            buffer.addThumb(thumb(id));
+        }
+        // 已写入数据库的点赞被取消
+        buffer.removeThumb(thumb(20));
+        // 尚未写入的点赞被取消，直接抵消
+        buffer.removeThumb(thumb(1));
+        assertThat(buffer.pending()).isEqualTo(10);
+
+        List<Long> inserts = new ArrayList<>();
+        List<Long> deletes = new ArrayList<>();
+        ThumbWriteBehindBuffer.Batch batch;
+        while (!(batch = buffer.drain(3)).isEmpty()) {
+            assertThat(batch.size()).isLessThanOrEqualTo(3);
+            batch.inserts().forEach(thumb -> inserts.add(thumb.getId()));
+            batch.deletes().forEach(thumb -> deletes.add(thumb.getId()));
+        }
+        assertThat(inserts).containsExactlyInAnyOrder(2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+        assertThat(deletes).containsExactly(20L);
+        assertThat(buffer.pending()).isZero();
+    }
+
+    @Test
+    void failedBatchIsRetriedBeforeNewRecords() {
+        ThumbWriteBehindBuffer buffer = new ThumbWriteBehindBuffer();
+        buffer.addThumb(thumb(1));
+        buffer.addThumb(thumb(2));
+        ThumbWriteBehindBuffer.Batch batch = buffer.drain(10);
+        // 写入期间取消点赞：记录已被取出，进入待删除
+        buffer.removeThumb(thumb(2));
+        buffer.addThumb(thumb(3));
+        buffer.restore(new ThumbWriteBehindBuffer.Batch(batch.inserts(), batch.deletes(), 1));
+
+        // 被取消的插入与待删除一起抵消，失败的批次原样先于新记录取出
+        ThumbWriteBehindBuffer.Batch retry = buffer.drain(10);
+        assertThat(retry.inserts()).extracting(Thumb::getId).containsExactly(1L);
+        assertThat(retry.deletes()).isEmpty();
+        assertThat(retry.attempts()).isEqualTo(1);
+
+        ThumbWriteBehindBuffer.Batch next = buffer.drain(10);
+        assertThat(next.inserts()).extracting(Thumb::getId).containsExactly(3L);
+        assertThat(next.deletes()).isEmpty();
+        assertThat(buffer.pending()).isZero();
+    }
+
+    private static Thumb thumb(long id) {
+        Thumb thumb = new Thumb();
+        thumb.setId(id);
+        thumb.setUserId(1L);
+        thumb.setBlogId(BLOG_ID);
+        return thumb;
+    }
+}
@@ -0,0 +1,64 @@
+package org.xiaobai.prettylike.manager.thumb;
+
+import org.junit.jupiter.api.Test;
+import org.xiaobai.prettylike.config.ThumbSyncProperties;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 时间片：按宽度对齐，跨分钟、跨天时上一个时间片仍然正确
+ */
+public class TimeSliceClockTest {
+
+    @Test
+    void previousSliceAcrossMinuteAndDay() {
+        // 00:00:03，上一个时间片是前一天的 23:59:50
+        Instant midnight = Instant.parse("2026-10-18T00:00:00Z");
+        TimeSliceClock clock = clock(midnight.plusSeconds(3), Duration.ofSeconds(10), Duration.ZERO);
+
+        assertThat(clock.currentSlice()).isEqualTo(midnight.getEpochSecond());
+        assertThat(clock.lastClosedSlice()).isEqualTo(midnight.getEpochSecond() - 10);
+        assertThat(clock.nextSlice(clock.lastClosedSlice())).isEqualTo(clock.currentSlice());
+    }
+
+    @Test
+    void graceDelaysClosing() {
+        Instant start = Instant.parse("2026-10-18T12:00:10Z");
+        TimeSliceClock clock = clock(start.plusMillis(500), Duration.ofSeconds(10), Duration.ofSeconds(1));
+
+        // 12:00:00 ~ 12:00:10 刚结束，还在等待时间内
+        assertThat(clock.lastClosedSlice()).isEqualTo(start.getEpochSecond() - 20);
+        clock = clock(start.plusMillis(1000), Duration.ofSeconds(10), Duration.ofSeconds(1));
+        assertThat(clock.lastClosedSlice()).isEqualTo(start.getEpochSecond() - 10);
+    }
+
+    @Test
+    void nextSliceRealignsAfterWidthChange() {
+        Instant now = Instant.parse("2026-10-18T12:01:30Z");
+        TimeSliceClock clock = clock(now, Duration.ofMinutes(1), Duration.ZERO);
+
+        // 按 10 秒宽度记录的 12:00:50 属于 12:00 这一分钟
+        long oldSlice = Instant.parse("2026-10-18T12:00:50Z").getEpochSecond();
+        assertThat(clock.nextSlice(oldSlice)).isEqualTo(Instant.parse("2026-10-18T12:01:00Z").getEpochSecond());
+        assertThat(clock.lastClosedSlice()).isEqualTo(Instant.parse("2026-10-18T12:00:00Z").getEpochSecond());
+    }
+
+    @Test
+    void rejectsFractionalWidth() {
+        assertThatThrownBy(() -> clock(Instant.now(), Duration.ofMillis(1500), Duration.ZERO))
+                .isInstanceOf(RuntimeException.class);
+    }
+
+    private static TimeSliceClock clock(Instant now, Duration width, Duration grace) {
+        ThumbSyncProperties properties = new ThumbSyncProperties();
+        properties.setSliceWidth(width);
+        properties.setSliceGrace(grace);
+        return new TimeSliceClock(properties, Clock.fixed(now, ZoneOffset.UTC));
+    }
+}